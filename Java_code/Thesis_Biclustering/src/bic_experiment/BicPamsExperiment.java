@@ -3,9 +3,12 @@ package bic_experiment;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Iterator;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 import org.apache.commons.math3.util.Pair;
 import org.jfree.chart.ChartPanel;
@@ -31,11 +34,11 @@ import bicpam.mapping.Itemizer.NoiseRelaxation;
 import bicpam.mapping.Itemizer.NormalizationCriteria;
 import bicpam.pminer.fim.ClosedFIM;
 import bicpam.pminer.fim.ClosedFIM.ClosedImplementation;
-import bicpam.significance.BSignificance;
 import domain.Bicluster;
 import domain.Biclusters;
 import domain.Dataset;
 import generator.BicMatrixGenerator.PatternType;
+import utils.ReportWriter;
 import utils.Utils;
 import utils.Utils.RemoveCriteria;
 import utils.Utils.StoppingCriteria;
@@ -76,6 +79,14 @@ public class BicPamsExperiment {
 	private String experimentSetFileFolder;				//Where output files are saved
 	private String outputFilename;						//Name for the output file
 	private Biclusters bics;							//Result of the experiment (Set of Bicluster)
+	private BiclustersCache resultsCache;				//Cache of previous results (null if no cache is used)
+	private Pair<Dataset, String> preprocessedData;		//Preprocessed Dataset and preprocessing report (null = not preprocessed yet)
+	private StageProfiler profiler;						//Wall time and memory of each stage of the experiment
+	private double sweepSupport;						//Lowest support of the support sweep of the experiment set (negative = no sweep)
+	private SharedResults<Biclusters> minedResults;		//Mined Biclusters, shared by the experiments with the same mining parameters (null = not shared)
+	private SharedResults<Biclusters> closedResults;	//Closed and evaluated Biclusters, shared by the experiments that only differ in the significance level (null = not shared)
+	private int numberFoundBics;						//Number of Biclusters before the significance filter, when the non significant ones are dropped while their p-values are calculated (-1 if the filter is applied by removeNonStatSignificant)
+	private ForkJoinPool significancePool;				//Pool where the p-values are calculated, shared by the experiments that run in parallel (null = common pool of the JVM)
 	
 	//standard constructor
 	public BicPamsExperiment(String experimentId, Dataset data, String inputFilePath, StoppingCriteria stoppingCriteria, 
@@ -112,6 +123,8 @@ public class BicPamsExperiment {
 		this.printPatternsOnly = printPatternsOnly;
 		this.experimentSetFileFolder = experimentSetFileFolder;
 		this.outputFilename = outputFilename;
+		this.sweepSupport = -1;
+		this.profiler = new StageProfiler();
 	}
 	
 	//constructor with default values
@@ -142,6 +155,8 @@ public class BicPamsExperiment {
 		this.printPatternsOnly = false;
 		this.experimentSetFileFolder = experimentSetFileFolder;
 		this.outputFilename = outputFilename;
+		this.sweepSupport = -1;
+		this.profiler = new StageProfiler();
 	}
 	
 	//other methods
@@ -149,177 +164,52 @@ public class BicPamsExperiment {
 		
 		/** Stage 1: Preprocessing **/
 
-		StringBuffer toPrint = new StringBuffer();	
+		//report header (the biclusters are streamed to the output file)
+		StringBuilder toPrint = new StringBuilder();	
 		
 		System.out.println("\n******************** EXPERIENCE PARAMETERS:\n" + this.toString() + "\n");
 		toPrint.append("EXPERIENCE PARAMETERS:\n" + this.toString() + "\n");	
 		
-		toPrint.append("ORIGINAL DATASET:\n" + this.data.getStatistics() + "\n");
-		System.out.println("ORIGINAL DATASET: " + this.data.getStatistics());
-				
-		/** Define Itemizer for Mapping **/		
-		if(this.scalability) {
-			
-			//use original code
-			if(this.columnFilteringPerc < 0) {
-				this.data = Itemizer.run(data, 										//Matrix
-										this.nrItems, 								//Coherency Strength (#items)
-										this.symmetric, 							//Symmetries
-										NormalizationCriteria.None, 				//Normalization
-										DiscretizationCriteria.None,				//Discretization
-										NoiseRelaxation.None, 						//Noise handler
-										this.missingsHandler,						//Missings handler	
-										this.scalability, 							//Scalability
-										this.orientation);							//Orientation
-			}
-			//use new constructor (Joana)
-			else {
-				this.data = Itemizer.run(data, 										//Matrix
-										this.nrItems, 								//Coherency Strength (#items)
-										this.symmetric, 							//Symmetries
-										NormalizationCriteria.None, 				//Normalization
-										DiscretizationCriteria.None,				//Discretization
-										NoiseRelaxation.None, 						//Noise handler
-										this.missingsHandler,						//Missings handler	
-										this.scalability, 							//Scalability
-										this.orientation,							//Orientation
-										this.columnFilteringPerc);					//Percentage of the dataset columns to keep 
-			}
-	
-			toPrint.append("\nWITH SCALABILITY - REMAINING COLUMNS: \n");
-			for(int i = 0; i < this.data.columns.size(); i++) {
-				toPrint.append(this.data.columns.get(i) + "\n");
-			}
+		//preprocessed Dataset (given by the experiment set if it is shared with the experiments with the same preprocessing parameters)
+		if(this.preprocessedData == null) {
+			this.preprocessedData = preprocess(this.data);
 		}
-		else {
-			this.data = Itemizer.run(data, 										//Matrix
-									 this.nrItems, 								//Coherency Strength (#items)
-									 this.symmetric, 							//Symmetries
-									 NormalizationCriteria.None, 				//Normalization
-									 DiscretizationCriteria.None,				//Discretization
-									 NoiseRelaxation.None, 						//Noise handler
-									 this.missingsHandler);						//Missings handler	
-			
-			toPrint.append("\nWITHOUT SCALABILITY - USED COLUMNS: \n");
-			for(int i = 0; i < this.data.columns.size(); i++) {
-				toPrint.append(this.data.columns.get(i) + "\n");
-			}
-		}
-				
-		//Remove elements with Zero-Entries depends on symmetries are being used and on the number of Coherency Strength (#items)
-		// -> symmetry + (items > 5) = removes -1, 0 and 1 values
-		// -> no symmetry + (items > 4) = removes 0 and 1 values
-		// -> else = = removes 0 values
-			
-		//removals can be "Zero-Entries", "Non-Diff. Values" or "None"
-		String removals;
-		if(this.removeElements == RemoveCriteria.RemoveZeroEntries) {
-			removals = "Zero-Entries";	
-		} else if(this.removeElements == RemoveCriteria.RemoveNonDiffEntries) {
-			removals = "Non-Diff. Values";
-		} else {
-			removals = "None";	
-		}	
+		this.data = this.preprocessedData.getFirst();
+		toPrint.append(this.preprocessedData.getSecond());
 		
-		List<Integer> remItems = RemovalUtils.getItemsToRemove(this.nrItems, removals, this.symmetric);
-
-		//remove "removals" from the data matrix
-		this.data = ItemMapper.remove(this.data, remItems, this.nrItems, this.symmetric);
-		
-		System.out.println("ALTERED DATASET (after " + remItems.toString() + " removal):\n" + this.data.getStatistics());
-		toPrint.append("\nALTERED DATASET (after " + remItems.toString() + " removal):\n" + this.data.getStatistics() + "\n\n");
-			
 		//Scalability and Coherency orientation can be defined with another Itemizer constructor
-						
-		/** Stage 2: Postprocessing **/
 		
-		/** Define Biclusterizer for Closing **/
-		//Filtering arguments
-		double minFilteringValueAux = this.minFilteringValue / 100.000;
-			
-		//Filtering procedure	
-		//BiclusterMerger.MergingStrategy default value = BiclusterMerger.MergingStrategy.Heuristic;
-		Biclusterizer posthandler = new Biclusterizer(new BiclusterMerger(this.minOverlapMerging),
-													  new BiclusterFilter(this.filter, 1.0 - minFilteringValueAux)); 
-				
-		/** Stage 3: Mining step **/		
-		/** Define PMiner **/
-		BiclusterMiner bicminer = null; 
-			
-		//Pattern miner (only FIM supported for now)
-		if(this.patternType != PatternType.OrderPreserving){
-			ClosedFIM pminer = new ClosedFIM();  
-						
-			pminer.setImplementation(this.closedImplementation); 
-			pminer.inputMinColumns(this.minNrColumns);		
-			
-			if (this.stoppingCriteria == StoppingCriteria.MinBicsBeforeMerging) {
-				pminer.inputMinNrBics((int) this.stoppingCriteriaValue);
-			} else if (this.stoppingCriteria == StoppingCriteria.MinAreaPercentageElements) {
-				pminer.inputMinArea(this.stoppingCriteriaValue);
-			} else if (this.stoppingCriteria == StoppingCriteria.MinSupportPercentageRowsPerBic) {
-				pminer.setSupport(this.stoppingCriteriaValue);
-			}				
-			
-			if(this.patternType == PatternType.Additive){
-				bicminer = new AdditiveBiclusterMiner(this.data,pminer,posthandler,this.orientation);
-			} else if(this.patternType == PatternType.Constant){
-				bicminer = new ConstantBiclusterMiner(this.data,pminer,posthandler,this.orientation); 
-			} else if(this.patternType == PatternType.Symmetric){
-				bicminer = new SymmetricBiclusterMiner(this.data,pminer,posthandler,this.orientation); 
-			} else if(this.patternType == PatternType.ConstantOverall){
-				bicminer = new ConstantOverallBiclusterMiner(this.data,pminer,posthandler,this.orientation); 
-			} else {
-				bicminer = new MultiplicativeBiclusterMiner(this.data,pminer,posthandler,this.orientation); 
-			}
-		}
+		/** Stages 2 and 3 (or read the result of an identical previous run from the cache) **/
+		Biclusters bics = null;
+		String cacheKey = null;
+		this.numberFoundBics = -1;
 		
-		/** Run BicPAM **/		
-		long time = System.currentTimeMillis();
-		Biclusters bics = new Biclusters();
-		List<List<Integer>> originalIndexes = CopyUtils.copyIntList(this.data.indexes);
-		List<List<Integer>> originalScores = CopyUtils.copyIntList(this.data.intscores);
-		
-		if(this.nrIterations > 1) {
-			double removePercentage = 0.3;
-			for(int i = 0; i < this.nrIterations; i++){
-				System.out.println("Mining Biclusters for iteration " + i);
-				Biclusters iBics = bicminer.mineBiclusters();
-				this.data.remove(iBics.getElementCounts(), removePercentage);
-				bicminer.setData(this.data);
-				bics.addAll(iBics);
-			}
+		if(this.resultsCache != null) {
+			cacheKey = this.resultsCache.getKey(this);
+			bics = this.resultsCache.load(cacheKey);
 		}
-		else {
-			System.out.println("Mining Biclusters"); 
-			Biclusters iBics = bicminer.mineBiclusters();
-			bics.addAll(iBics);
-		}
-
-		this.data.indexes = originalIndexes;
-		this.data.intscores = originalScores;
-		time = System.currentTimeMillis() - time;
 		
-		/** Output and Evaluation **/			
-		bics.computePatterns(this.data, this.orientation);
-		if(this.patternType == PatternType.OrderPreserving) {
-			BSignificance.runOrderPreserving(this.data, bics);
+		if(bics == null) {
+			bics = mineBiclusters();
+			
+			if(this.resultsCache != null) {
+				this.resultsCache.store(cacheKey, bics);
+			}
 		}
 		else {
-			//calculate p-value considering that each feature may have a different distribution (non-iid)
-			BSignificance.runConstantFreqColumn(this.data, bics);
+			System.out.println("Biclusters for " + this.experimentId + " read from cache (" + cacheKey + ")");
 		}
-		//order biclusters by p-value
-		bics.orderPValue();
 		
-		toPrint.append("NUMBER OF FOUND BICS (total): " + bics.size() + "\n");		
+		toPrint.append("NUMBER OF FOUND BICS (total): " + (this.numberFoundBics >= 0 ? this.numberFoundBics : bics.size()) + "\n");		
 		
-		//remove biclusters with p-values above the significance level
-		bics = removeNonStatSignificant(bics, this.significanceLevel);
+		//remove biclusters with p-values above the significance level (unless they were already removed with the p-values)
+		if(this.numberFoundBics < 0) {
+			this.profiler.start("removeNonStatSignificant");
+			bics = removeNonStatSignificant(bics, this.significanceLevel);
+			this.profiler.stop();
+		}
 		this.bics = bics;
 		
-		System.out.println("Time:" +((double)time/(double)1000) + "ms");
-		
 		//check for Bicluster overlaps
 //		String overlapInfo = biclusterOverlaps(bics);
 //		toPrint.append("\nOVERLAPPING BICLUSTERS:\n");
@@ -330,39 +220,61 @@ public class BicPamsExperiment {
 		toPrint.append("NUMBER OF FOUND BICS (significant): " + bics.size());		
 		toPrint.append("\nINDIVIDUAL BICLUSTERS:\n");
 				
+		//output to a concrete location (the biclusters are written one by one, after the report header)
+		this.profiler.start("Output File");
+		String completeFilepath = this.experimentSetFileFolder + "/" + this.outputFilename;
+		ReportWriter out = new ReportWriter(completeFilepath);
+		try {
+			out.write(toPrint.toString());
+			writeBiclusters(bics, out);
+		}
+		finally {
+			out.close();
+		}
+		//binary result file (random access to each bicluster by its index)
+		BiclustersResultFile.write(BiclustersResultFile.getResultFilePath(completeFilepath), this.bics, this.data, this.scalability);
+		this.profiler.stop();
+		System.out.println("Results for " + this.experimentId + " -> " + completeFilepath);
+		
+		return this.bics;
+	}
+
+	//individual bicluster info of the output file
+	private void writeBiclusters(Biclusters bics, Writer out) throws IOException {
+		
 		int bicNumber = 1;
 		for(Bicluster bic : bics.getBiclusters()) {
-			toPrint.append("\nBICLUSTER #" + bicNumber + ":\n");
-			toPrint.append("p-value = " + bic.pvalue + "\n");	
-			toPrint.append("area = " + bic.area() + "\n\n");	
+			out.write("\nBICLUSTER #" + bicNumber + ":\n");
+			out.write("p-value = " + bic.pvalue + "\n");	
+			out.write("area = " + bic.area() + "\n\n");	
 			
 			if(this.printPatternsOnly) {
 				//print columns and row pattern
 				if(this.patternType == PatternType.Constant) {	
-					toPrint.append("pattern: \n");
+					out.write("pattern: \n");
 					for(int idx : bic.columns) {
 						if(this.scalability) {
-							toPrint.append(this.data.originalColumns.get(idx) + "\t");
+							out.write(this.data.originalColumns.get(idx) + "\t");
 						}
 						else {
-							toPrint.append(this.data.columns.get(idx) + "\t");
+							out.write(this.data.columns.get(idx) + "\t");
 						}
 					} 
-					toPrint.append("\n");	
+					out.write("\n");	
 					
-					int[] matrixFirstLine = this.data.getBicluster(bic.columns,bic.rows)[0]; 
+					int[] matrixFirstLine = Utils.getConstantPattern(this.data, bic); 
 					for(int j = 0; j < matrixFirstLine.length; j++) {
-						toPrint.append(String.valueOf(matrixFirstLine[j]) + "\t");
+						out.write(matrixFirstLine[j] + "\t");
 					}
-					toPrint.append("\n");			
+					out.write("\n");			
 				}
 				//failsafe in the case PatternType is not Constant
 				else {
-					toPrint.append(bic.toString(this.data));
+					out.write(bic.toString(this.data));
 				}			
 			}
 			else {
-				toPrint.append(bic.toString(this.data));
+				out.write(bic.toString(this.data));
 			}
 	
 			//save Bicluster chart and heatmap on experimentSetFileFolder
@@ -370,20 +282,17 @@ public class BicPamsExperiment {
 			//update bicNumber
 			bicNumber++;
 		}
-				
-		//output to a concrete location
-		String completeFilepath = this.experimentSetFileFolder + "/" + this.outputFilename;
-		Utils.writeFile(completeFilepath, toPrint.toString());
-		System.out.println("Results for " + this.experimentId + " -> " + completeFilepath);
-		
-		return this.bics;
 	}
-
+	
 	//getters 
 	public String getExperimentId() {
 		return experimentId;
 	}
 	
+	public StageProfiler getProfiler() {
+		return profiler;
+	}
+	
 	public Dataset getData() {
 		return data;
 	}
@@ -483,6 +392,10 @@ public class BicPamsExperiment {
 	public Biclusters getBics() {
 		return bics;
 	}
+	
+	public BiclustersCache getResultsCache() {
+		return resultsCache;
+	}
 
 	//setters
 	public void setExperimentId(String experimentId) {
@@ -584,6 +497,39 @@ public class BicPamsExperiment {
 	public void setOutputFilename(String outputFilename) {
 		this.outputFilename = outputFilename;
 	}
+	
+	public void setResultsCache(BiclustersCache resultsCache) {
+		this.resultsCache = resultsCache;
+	}
+	
+	//preprocessed Dataset (read-only, may be shared with other experiments) and preprocessing report, see preprocess
+	public void setPreprocessedData(Pair<Dataset, String> preprocessedData) {
+		this.preprocessedData = preprocessedData;
+	}
+	
+	//parameters used by the preprocessing stage (experiments with the same key have the same preprocessed Dataset)
+	public String getPreprocessingKey() {
+		
+		return this.inputFilePath + "\n" + this.nrItems + "\n" + this.symmetric + "\n" + this.missingsHandler + "\n" + this.scalability + "\n"
+			   + this.orientation + "\n" + this.columnFilteringPerc + "\n" + this.removeElements + "\n" + this.discriminative + "\n" + this.targetClassName;
+	}
+	
+	//pool of the significance stage (null = common pool of the JVM); experiments that run in parallel must share one bounded pool,
+	//so that each of them does not use all the processors
+	public void setSignificancePool(ForkJoinPool significancePool) {
+		this.significancePool = significancePool;
+	}
+	
+	//results of the mining and closing stages shared with the other experiments of the experiment set
+	public void setSharedResults(SharedResults<Biclusters> minedResults, SharedResults<Biclusters> closedResults) {
+		this.minedResults = minedResults;
+		this.closedResults = closedResults;
+	}
+	
+	//mine the Biclusters only once, at the lowest support of the experiment set (see isSupportSweep; needs shared mined results)
+	public void setSweepSupport(double sweepSupport) {
+		this.sweepSupport = sweepSupport;
+	}
 
 	//Utility methods
 	
@@ -675,22 +621,363 @@ public class BicPamsExperiment {
 		}*/
 	}
 
-	private Biclusters removeNonStatSignificant(Biclusters bics, double significanceLevel) {
-		//remove biclusters with p-value larger than a given significance level 
-		//(not statistically relevant)
-		List<Bicluster> bicList = bics.getBiclusters();
-		for (Iterator<Bicluster> iterator = bicList.iterator(); iterator.hasNext();) {
-			Bicluster bicluster = (Bicluster) iterator.next();			
-			if(bicluster.pvalue >= significanceLevel) {
-				//removes current bicluster (to avoid concurrent modifications)
-				iterator.remove(); 
+	//itemize the given Dataset and remove the uninformative elements (the given Dataset can be changed);
+	//returns the preprocessed Dataset and the preprocessing report (for the output file)
+	public Pair<Dataset, String> preprocess(Dataset data) throws Exception {
+		
+		StringBuilder report = new StringBuilder();
+		
+		report.append("ORIGINAL DATASET:\n" + data.getStatistics() + "\n");
+		System.out.println("ORIGINAL DATASET: " + data.getStatistics());
+				
+		/** Define Itemizer for Mapping **/		
+		this.profiler.start("Itemizer");
+		if(this.scalability) {
+			
+			//use original code
+			if(this.columnFilteringPerc < 0) {
+				data = Itemizer.run(data, 										//Matrix
+										this.nrItems, 								//Coherency Strength (#items)
+										this.symmetric, 							//Symmetries
+										NormalizationCriteria.None, 				//Normalization
+										DiscretizationCriteria.None,				//Discretization
+										NoiseRelaxation.None, 						//Noise handler
+										this.missingsHandler,						//Missings handler	
+										this.scalability, 							//Scalability
+										this.orientation);							//Orientation
+			}
+			//use new constructor (Joana)
+			else {
+				data = Itemizer.run(data, 										//Matrix
+										this.nrItems, 								//Coherency Strength (#items)
+										this.symmetric, 							//Symmetries
+										NormalizationCriteria.None, 				//Normalization
+										DiscretizationCriteria.None,				//Discretization
+										NoiseRelaxation.None, 						//Noise handler
+										this.missingsHandler,						//Missings handler	
+										this.scalability, 							//Scalability
+										this.orientation,							//Orientation
+										this.columnFilteringPerc);					//Percentage of the dataset columns to keep 
+			}
+	
+			report.append("\nWITH SCALABILITY - REMAINING COLUMNS: \n");
+			for(int i = 0; i < data.columns.size(); i++) {
+				report.append(data.columns.get(i) + "\n");
+			}
+		}
+		else {
+			data = Itemizer.run(data, 										//Matrix
+									 this.nrItems, 								//Coherency Strength (#items)
+									 this.symmetric, 							//Symmetries
+									 NormalizationCriteria.None, 				//Normalization
+									 DiscretizationCriteria.None,				//Discretization
+									 NoiseRelaxation.None, 						//Noise handler
+									 this.missingsHandler);						//Missings handler	
+			
+			report.append("\nWITHOUT SCALABILITY - USED COLUMNS: \n");
+			for(int i = 0; i < data.columns.size(); i++) {
+				report.append(data.columns.get(i) + "\n");
 			}
 		}
+				
+		//Remove elements with Zero-Entries depends on symmetries are being used and on the number of Coherency Strength (#items)
+		// -> symmetry + (items > 5) = removes -1, 0 and 1 values
+		// -> no symmetry + (items > 4) = removes 0 and 1 values
+		// -> else = = removes 0 values
+			
+		//removals can be "Zero-Entries", "Non-Diff. Values" or "None"
+		String removals;
+		if(this.removeElements == RemoveCriteria.RemoveZeroEntries) {
+			removals = "Zero-Entries";	
+		} else if(this.removeElements == RemoveCriteria.RemoveNonDiffEntries) {
+			removals = "Non-Diff. Values";
+		} else {
+			removals = "None";	
+		}	
+		
+		this.profiler.start("ItemMapper.remove");
+		List<Integer> remItems = RemovalUtils.getItemsToRemove(this.nrItems, removals, this.symmetric);
 
+		//remove "removals" from the data matrix
+		data = ItemMapper.remove(data, remItems, this.nrItems, this.symmetric);
+		this.profiler.stop();
+		
+		System.out.println("ALTERED DATASET (after " + remItems.toString() + " removal):\n" + data.getStatistics());
+		report.append("\nALTERED DATASET (after " + remItems.toString() + " removal):\n" + data.getStatistics() + "\n\n");
+			
+		return new Pair<Dataset, String>(data, report.toString());
+	}
+	
+	//mine the Biclusters of the (already preprocessed) dataset and calculate their patterns and p-values
+	//(the returned Biclusters may be shared by other experiments, so they must not be changed)
+	private Biclusters mineBiclusters() throws Exception {
+		
+		/** Stage 2: Postprocessing and Evaluation (shared by the experiments that only differ in the significance level) **/
+		if(this.closedResults != null) {
+			return this.closedResults.get(getClosingKey(), () -> calculateSignificance(closeBiclusters(getMinedBiclusters())));
+		}
+		
+		return calculateSignificance(closeBiclusters(getMinedBiclusters()));
+	}
+	
+	private Biclusters getMinedBiclusters() throws Exception {
+		
+		/** Stage 3: Mining step (shared by the experiments with the same mining parameters) **/
+		if(this.minedResults != null) {
+			return this.minedResults.get(getMiningKey(), () -> mineRawBiclusters());
+		}
+		
+		return mineRawBiclusters();
+	}
+	
+	//Biclusters found by the pattern miner (with a single iteration, before merging and filtering);
+	//the Dataset must have been preprocessed (public so that the stage can be benchmarked on its own)
+	public Biclusters mineRawBiclusters() throws Exception {
+		
+		double support = isSupportSweep() ? this.sweepSupport : this.stoppingCriteriaValue;
+		
+		//with several iterations, the data removed after each iteration depends on the merged/filtered Biclusters,
+		//so the posthandler has to be used while mining
+		Biclusterizer posthandler = (this.nrIterations > 1) ? createPosthandler() : new Biclusterizer();
+		
+		return runMiner(createMiner(posthandler, support));
+	}
+	
+	//merging, filtering and patterns of the mined Biclusters (which are not changed)
+	public Biclusters closeBiclusters(Biclusters minedBics) throws Exception {
+		
+		Biclusters bics;
+		
+		if(isSupportSweep()) {
+			//keep the Biclusters with the support of this experiment
+			double minNumberRows = this.stoppingCriteriaValue * this.data.rows.size();
+			bics = copyBiclusters(minedBics, minNumberRows);
+		
+			System.out.println("Biclusters for " + this.experimentId + " derived from the support sweep (" + bics.size() + " of "
+							   + minedBics.size() + " Biclusters mined with support " + this.sweepSupport + ")");
+		}
+		else {
+			bics = copyBiclusters(minedBics, 0);
+		}
+		
+		/** Define Biclusterizer for Closing (already used while mining if there are several iterations) **/
+		if(this.nrIterations == 1) {
+			this.profiler.start("Merging/Filtering");
+			bics = createPosthandler().run(bics);
+			this.profiler.stop();
+		}
+		
+		/** Output and Evaluation **/
+		this.profiler.start("computePatterns");
+		bics.computePatterns(this.data, this.orientation);
+		this.profiler.stop();
+		
+		return bics;
+	}
+	
+	//p-values of the closed Biclusters (patterns must have been computed)
+	public Biclusters calculateSignificance(Biclusters bics) {
+		
+		ParallelSignificance significance = (this.significancePool != null) ? new ParallelSignificance(this.significancePool) 
+																			: new ParallelSignificance();
+		
+		this.profiler.start("BSignificance");
+		//p-values calculated in parallel, only the significant biclusters are kept and ordered by p-value
+		if(this.closedResults == null && this.resultsCache == null) {
+			this.numberFoundBics = bics.size();
+			bics = significance.run(this.data, bics, this.patternType, this.significanceLevel);
+		}
+		//all biclusters are kept (unordered) if they are shared by experiments with other significance levels or cached,
+		//and each experiment keeps and orders the ones of its significance level (removeNonStatSignificant)
+		else {
+			significance.calculate(this.data, bics, this.patternType);
+		}
+		this.profiler.stop();
+		
+		return bics;
+	}
+	
+	private Biclusterizer createPosthandler() {
+		
+		/** Define Biclusterizer for Closing **/
+		//Filtering arguments
+		double minFilteringValueAux = this.minFilteringValue / 100.000;
+		
+		//Filtering procedure
+		//BiclusterMerger.MergingStrategy default value = BiclusterMerger.MergingStrategy.Heuristic;
+		return new Biclusterizer(new BiclusterMerger(this.minOverlapMerging),
+								 new BiclusterFilter(this.filter, 1.0 - minFilteringValueAux));
+	}
+	
+	//support -> only used with the StoppingCriteria.MinSupportPercentageRowsPerBic stopping criteria
+	private BiclusterMiner createMiner(Biclusterizer posthandler, double support) {
+		
+		/** Define PMiner **/
+		BiclusterMiner bicminer = null;
+		
+		//Pattern miner (only FIM supported for now)
+		if(this.patternType != PatternType.OrderPreserving){
+			ClosedFIM pminer = new ClosedFIM();
+		
+			pminer.setImplementation(this.closedImplementation);
+			pminer.inputMinColumns(this.minNrColumns);
+		
+			if (this.stoppingCriteria == StoppingCriteria.MinBicsBeforeMerging) {
+				pminer.inputMinNrBics((int) this.stoppingCriteriaValue);
+			} else if (this.stoppingCriteria == StoppingCriteria.MinAreaPercentageElements) {
+				pminer.inputMinArea(this.stoppingCriteriaValue);
+			} else if (this.stoppingCriteria == StoppingCriteria.MinSupportPercentageRowsPerBic) {
+				pminer.setSupport(support);
+			}
+		
+			if(this.patternType == PatternType.Additive){
+				bicminer = new AdditiveBiclusterMiner(this.data,pminer,posthandler,this.orientation);
+			} else if(this.patternType == PatternType.Constant){
+				bicminer = new ConstantBiclusterMiner(this.data,pminer,posthandler,this.orientation);
+			} else if(this.patternType == PatternType.Symmetric){
+				bicminer = new SymmetricBiclusterMiner(this.data,pminer,posthandler,this.orientation);
+			} else if(this.patternType == PatternType.ConstantOverall){
+				bicminer = new ConstantOverallBiclusterMiner(this.data,pminer,posthandler,this.orientation);
+			} else {
+				bicminer = new MultiplicativeBiclusterMiner(this.data,pminer,posthandler,this.orientation);
+			}
+		}
+		
+		return bicminer;
+	}
+	
+	private Biclusters runMiner(BiclusterMiner bicminer) throws Exception {
+		
+		/** Run BicPAM **/
+		long time = System.currentTimeMillis();
+		Biclusters bics = new Biclusters();
+		
+		if(this.nrIterations > 1) {
+			//the iterations change the Dataset, so it is restored afterwards 
+			//(with a single iteration the Dataset is only read, so it can be shared with other experiments)
+			List<List<Integer>> originalIndexes = CopyUtils.copyIntList(this.data.indexes);
+			List<List<Integer>> originalScores = CopyUtils.copyIntList(this.data.intscores);
+			
+			double removePercentage = 0.3;
+			for(int i = 0; i < this.nrIterations; i++){
+				System.out.println("Mining Biclusters for iteration " + i);
+				this.profiler.start("Mining (iteration " + i + ")");
+				Biclusters iBics = bicminer.mineBiclusters();
+				this.data.remove(iBics.getElementCounts(), removePercentage);
+				bicminer.setData(this.data);
+				bics.addAll(iBics);
+				this.profiler.stop();
+			}
+			
+			this.data.indexes = originalIndexes;
+			this.data.intscores = originalScores;
+		}
+		else {
+			System.out.println("Mining Biclusters");
+			this.profiler.start("Mining");
+			Biclusters iBics = bicminer.mineBiclusters();
+			bics.addAll(iBics);
+			this.profiler.stop();
+		}
+		
+		time = System.currentTimeMillis() - time;
+		
+		System.out.println("Time:" +((double)time/(double)1000) + "s");
+		
+		return bics;
+	}
+	
+	/**SUPPORT SWEEP*/
+	//closed patterns found with a given support are exactly the closed patterns found with a lower support
+	//whose support (number of rows, with patterns on rows) is still above the given support, so all experiments that
+	//only differ in the support can share one mining run, done at the lowest support of the experiment set;
+	//only used for constant patterns on rows mined in a single iteration (with the other miners and with several
+	//iterations the rows of a bicluster are not the support of its pattern, so they cannot be derived this way)
+	private boolean isSupportSweep() {
+		
+		return this.minedResults != null && this.sweepSupport >= 0 && this.sweepSupport <= this.stoppingCriteriaValue
+			   && this.stoppingCriteria == StoppingCriteria.MinSupportPercentageRowsPerBic && this.nrIterations == 1
+			   && this.patternType == PatternType.Constant && this.orientation == Orientation.PatternOnRows;
+	}
+	
+	/**SHARED RESULTS KEYS*/
+	//parameters used by the mining stage (the Dataset of all experiments with the same key has to be the same):
+	//every parameter except the postprocessing ones (only used after mining if there is a single iteration),
+	//the significance level and, in a support sweep, the support
+	public String getMiningKey() {
+		
+		List<String> excluded = new ArrayList<String>();
+		excluded.add("Significance Level:");
+		if(this.nrIterations == 1) {
+			excluded.add("Min Overlap Merging:");
+			excluded.add("Filter:");
+			excluded.add("Min Filtering Value:");
+		}
+		if(isSupportSweep()) {
+			excluded.add("Stopping Criteria Value:");
+		}
+		
+		String key = getParametersKey(excluded);
+		return isSupportSweep() ? "Sweep Support:=" + this.sweepSupport + "\n" + key : key;
+	}
+	
+	//parameters used by the mining and closing stages: every parameter except the significance level
+	public String getClosingKey() {
+		
+		List<String> excluded = new ArrayList<String>();
+		excluded.add("Significance Level:");
+		
+		return getParametersKey(excluded);
+	}
+	
+	private String getParametersKey(List<String> excludedParameters) {
+		
+		StringBuilder key = new StringBuilder();
+		
+		for(Pair<String, String> pair : getExperimentInfo()) {
+			if(!excludedParameters.contains(pair.getFirst())) {
+				key.append(pair.getFirst() + "=" + pair.getSecond() + "\n");
+			}
+		}
+		
+		return key.toString();
+	}
+	
+	//copies of the Biclusters with at least minNumberRows rows (the given Biclusters may be shared by other experiments)
+	private static Biclusters copyBiclusters(Biclusters bics, double minNumberRows) {
+		
+		Biclusters copies = new Biclusters();
+		
+		for(Bicluster bic : bics.getBiclusters()) {
+			if(bic.numRows() >= minNumberRows) {
+				copies.add(copyBicluster(bic));
+			}
+		}
+		
+		return copies;
+	}
+	
+	private static Bicluster copyBicluster(Bicluster bic) {
+		
+		Bicluster copy = new Bicluster(new TreeSet<Integer>(bic.rows), new TreeSet<Integer>(bic.columns));
+		copy.pvalue = bic.pvalue;
+		copy.items = (bic.items == null) ? null : new ArrayList<Integer>(bic.items);
+		copy.key = bic.key;
+		
+		return copy;
+	}
+	
+	private Biclusters removeNonStatSignificant(Biclusters bics, double significanceLevel) {
+		//remove biclusters with p-value larger than a given significance level 
+		//(not statistically relevant), in a single pass, and order the remaining ones by p-value
 		Biclusters significantBiclusters = new Biclusters();
-		for (Bicluster bicluster : bicList) {		
-			significantBiclusters.add(bicluster);
+		for (Bicluster bicluster : bics.getBiclusters()) {		
+			if(bicluster.pvalue < significanceLevel) {
+				//copies of shared Biclusters, since the Biclusters of the experiment are changed later on
+				significantBiclusters.add(this.closedResults != null ? copyBicluster(bicluster) : bicluster);
+			}
 		}	
+		significantBiclusters.orderPValue();
 
 		return significantBiclusters;
 	}
@@ -1,21 +1,27 @@
 package bic_experiment;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import org.apache.commons.math3.util.Pair;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import bic_metrics.BiclustersEvaluator;
+import bic_metrics.BiclustersEvaluator.ClassifierMatrixFormat;
+import bic_metrics.CsvColumnStore;
 import bic_metrics.MetricsExperiment;
+import bic_metrics.MetricsWorkbook;
 import bic_translator.BiclustersTranslator;
 import bic_translator.BiclustersTranslator.TranslationMode;
 import bicpam.bicminer.BiclusterMiner.Orientation;
@@ -25,14 +31,10 @@ import bicpam.pminer.fim.ClosedFIM.ClosedImplementation;
 import domain.Biclusters;
 import domain.Dataset;
 import generator.BicMatrixGenerator.PatternType;
-import utils.BicReader;
+import utils.ReportWriter;
 import utils.Utils;
 import utils.Utils.RemoveCriteria;
 import utils.Utils.StoppingCriteria;
-import weka.core.Attribute;
-import weka.core.Instances;
-import weka.filters.Filter;
-import weka.filters.unsupervised.attribute.Remove;
 
 /** @author Joana Matos
  *  @contact jmatos@lasige.di.fc.ul.pt
@@ -66,11 +68,35 @@ public class BicPamsExperimentSet {
 	private String[] targetClassName;						//Name of the target class (column/feature name)
 	private Boolean[] printPatternsOnly;					//Flag to print Bicluster patterns only; if false or PatternType is not Constant, whole bicluster is printed
 	private String experimentSetFileFolder;					//Where output files are saved
-	private List<BicPamsExperiment> experimentList;			//List of experiments	
+	private LinkedHashMap<String, Object[]> paramStructure;	//Values of each parameter (1 combination of values = 1 experiment)
+	private int numberExperiments;							//Number of experiments (combinations of parameter values)
 	private String translationIndexToCategoryFilePath; 		//String for indexes to discretization categories translation file path
 	private String translationCategoryToLabelFilePath; 		//String for categories to labels translation file path
 	private BiclustersTranslator translator;				//Translator of BicPAMS indexes to discretization categories or labels
 	private TranslationMode translationMode;				//Flag to know what translation modes have to be done	
+	private int numberWorkers;								//Number of experiments that can run at the same time (1 = sequential)
+	private DatasetLoader datasetLoader;					//Reads the dataset file once and creates the Dataset of each experiment
+	private ClassifierMatrixFormat classifierMatrixFormat;	//File format of the subject x bicluster matrix written for the classifiers
+	private boolean writeNumpyFiles;						//Flag to know if the membership matrix and metrics are also written as NumPy files (for the Python scripts)
+	private Double translationPurityLevel;					//Minimum purity of the translated biclusters of discriminative experiments (null = translate all biclusters)
+	private Double translationPrecisionLevel;				//Minimum highest class precision of the translated biclusters of discriminative experiments
+	private boolean compressReports;						//Flag to know if the output and translated text files are gzip-compressed
+	private CsvColumnStore csvDatasetStore;					//CSV dataset columns used by the evaluators, loaded once and shared by all experiments (null until first needed)
+	private String resultsCacheFolder;						//Folder for the cache of experiment results (null = no cache)
+	private BiclustersCache resultsCache;					//Cache of experiment results, shared by all experiments
+	private boolean useJournal;								//Flag to know if completed experiments are journaled (and skipped when the set runs again)
+	private ExperimentJournal journal;						//Journal of the completed experiments (in the experiment set folder)
+	private boolean shareResults;							//Flag to know if experiments share the results of their mining and closing stages
+	private boolean supportSweep;							//Flag to know if experiments that only differ in the support share one mining run (at the lowest support)
+	private SharedResults<Biclusters> minedResults;			//Mined Biclusters, shared by the experiments with the same mining parameters
+	private SharedResults<Biclusters> closedResults;		//Closed and evaluated Biclusters, shared by the experiments that only differ in the significance level
+	private SharedResults<Pair<Dataset, String>> preprocessedResults;	//Preprocessed Datasets (and reports), shared by the experiments with the same preprocessing parameters
+	
+	//where the start of the current experiment is (in rows of the respective XSLX sheet)
+	private int startingRowIndexExperiments;
+	private int startingRowIndexCalculations;
+	private int startingRowIndexPurestBiclusters;
+	private int startingRowIndexStages;
 	
 	//auxiliary parameter strings
 	private static final String stoppingCriteriaStr = "stoppingCriteria";
@@ -133,6 +159,15 @@ public class BicPamsExperimentSet {
 		this.translationIndexToCategoryFilePath = translationIndexToCategoryFilePath;	
 		this.translationCategoryToLabelFilePath = translationCategoryToLabelFilePath;
 		this.translationMode = translationMode;
+		this.numberWorkers = 1;
+		this.useJournal = true;
+		this.shareResults = true;
+		this.classifierMatrixFormat = ClassifierMatrixFormat.CSV;
+		this.writeNumpyFiles = false;
+		this.translationPurityLevel = null;
+		this.translationPrecisionLevel = null;
+		this.compressReports = false;
+		this.supportSweep = false;
 
 		try {
 			//setup translators
@@ -217,6 +252,15 @@ public class BicPamsExperimentSet {
 		this.translationIndexToCategoryFilePath = translationIndexToCategoryFilePath;	
 		this.translationCategoryToLabelFilePath = translationCategoryToLabelFilePath;
 		this.translationMode = translationMode;
+		this.numberWorkers = 1;
+		this.useJournal = true;
+		this.shareResults = true;
+		this.classifierMatrixFormat = ClassifierMatrixFormat.CSV;
+		this.writeNumpyFiles = false;
+		this.translationPurityLevel = null;
+		this.translationPrecisionLevel = null;
+		this.compressReports = false;
+		this.supportSweep = false;
 		
 		try {
 			defineExperimentSet();
@@ -230,220 +274,567 @@ public class BicPamsExperimentSet {
 	public void defineExperimentSet() throws Exception {
 		
 		/** Define combinations of parameters -> 1 combination = 1 experiment **/ 
-		this.experimentList = new LinkedList<BicPamsExperiment>();
-		
 		//create initial parameter structure
-		LinkedHashMap<String, Object[]> paramStructure = createParameterStructure();
-
-		//cartesian product (all unique combinations of several arrays)
-		Object[][] cartesianParams = allUniqueCombinations(paramStructure);
+		//(experiments are only created when they are about to run, see runExperimentSet)
+		this.paramStructure = createParameterStructure();
+		this.numberExperiments = ParameterCombinationIterator.getNumberCombinations(this.paramStructure);
 		
-		System.out.println("Number of experiments: " + (cartesianParams.length - 1));
-		System.out.println("Creating experiment layouts...");
+		System.out.println("Number of experiments: " + this.numberExperiments);
 		
-		//test - OK
-		//ExperimentUtils.printObjectMatrix(cartesianParams);
+		/** read dataset only once for the whole experiment set **/
+		this.datasetLoader = new DatasetLoader(this.dataset);
+	}
+	
+	//create the experiment for a given combination of parameters (without its Dataset, which is only 
+	//created when the experiment runs)
+	private BicPamsExperiment createExperiment(String experimentId, Object[] experimentParams) {
+		
+		String outputFilename = experimentId + "_output.txt" + (this.compressReports ? ReportWriter.GZIP_EXTENSION : "");
+		
+		int j = 0;	
+		BicPamsExperiment experiment = new BicPamsExperiment(experimentId,									//experimentId
+															 null,											//dataset (created before running)
+															 this.dataset,									//filePath
+															 (StoppingCriteria) experimentParams[j++],		//stoppingCriteria 		(0)
+															 (double) experimentParams[j++], 				//stoppingCriteriaValue (1)
+															 (int) experimentParams[j++], 					//minNrColumns 			(2)
+															 (int) experimentParams[j++],					//nrIterations 			(3)
+															 (int) experimentParams[j++], 					//nrItems 				(4)
+															 (boolean) experimentParams[j++],				//symmetric				(5)
+															 (double) experimentParams[j++], 				//minOverlapMerging		(6)
+															 (FilteringCriteria) experimentParams[j++], 	//filter				(7)
+															 (FillingCriteria) experimentParams[j++], 		//missingsHandler		(8)
+															 (RemoveCriteria) experimentParams[j++], 		//removeMissings		(9)
+															 (double) experimentParams[j++], 				//minFilteringValue		(10)
+															 (PatternType) experimentParams[j++],			//patternType			(11)
+															 (ClosedImplementation) experimentParams[j++],	//closedImplementation	(12)
+															 (Orientation) experimentParams[j++], 			//orientation			(13)
+															 (double) experimentParams[j++], 				//significanceLevel		(14)
+															 (boolean) experimentParams[j++],				//scalability			(15)
+															 (double) experimentParams[j++],				//columnFilteringPerc	(16)
+															 (boolean) experimentParams[j++],				//discriminative		(17)
+															 (String) experimentParams[j++],				//targetClassName		(18)
+															 (boolean) experimentParams[j++],				//printPatternsOnly		(19)
+															 this.experimentSetFileFolder,					//experimentSetFileFolder
+															 outputFilename);								//outputFilename
+		
+		experiment.setSharedResults(this.minedResults, this.closedResults);
+		//the JVM peak heap can only be reset per stage when a single experiment runs at a time
+		experiment.getProfiler().setResetPeakHeap(this.numberWorkers <= 1);
+		if(this.supportSweep) {
+			experiment.setSweepSupport(getSweepSupport());
+		}
 		
-		/** read csv dataset **/		
-		//create BicPamsExperiments
-		//(do not use the first array since it only contains the columns names)
-		for (int i = 1; i < cartesianParams.length; i++) {
-			
-			/** Read Instances object for Dataset creation (once for every experiment since values may be removed) **/    
-			Instances instances = BicReader.getInstances(dataset);
-										
-			/** Define individual experiments **/
-			Object[] experimentParams = cartesianParams[i];
-			
-			//remove target class from dataset if experiment is discriminative (tends to appear on biclusters)
-			int discriminativeIndexOnParams = 17; 
-			int targetClassNameIndexOnParams = 18; 
-			
-			boolean discriminativeExperiment = (boolean) experimentParams[discriminativeIndexOnParams];
-			
-			if(discriminativeExperiment) {
-				int targetClassIndex = -1;		
-				String targetClassName = (String) experimentParams[targetClassNameIndexOnParams];
-				
-				//find target class attribute index
-				ArrayList<Attribute> attributes = instances.getAttributes();
-				for(Attribute att : attributes) {
-					if(att.name().equals(targetClassName)) {
-						targetClassIndex = att.index();
-					}
-				}
-				
-				//only delete attribute if it was really found
-				if(targetClassIndex != -1) {
-					Remove removeFilter = new Remove();
-					int[] to_remove = {targetClassIndex};
-					removeFilter.setAttributeIndicesArray(to_remove);
-					removeFilter.setInputFormat(instances);
-					instances = Filter.useFilter(instances, removeFilter);
-				}
-			}
-			
-			/** Create Dataset object */
-			Dataset data = new Dataset(instances);
-			
-			String experimentId = "Exp_" + i;
-			String outputFilename = experimentId + "_output.txt";
-			
-			int j = 0;	
-			BicPamsExperiment experiment = new BicPamsExperiment(experimentId,									//experimentId
-																 data,											//dataset
-																 this.dataset,									//filePath
-																 (StoppingCriteria) experimentParams[j++],		//stoppingCriteria 		(0)
-																 (double) experimentParams[j++], 				//stoppingCriteriaValue (1)
-																 (int) experimentParams[j++], 					//minNrColumns 			(2)
-																 (int) experimentParams[j++],					//nrIterations 			(3)
-																 (int) experimentParams[j++], 					//nrItems 				(4)
-																 (boolean) experimentParams[j++],				//symmetric				(5)
-																 (double) experimentParams[j++], 				//minOverlapMerging		(6)
-																 (FilteringCriteria) experimentParams[j++], 	//filter				(7)
-																 (FillingCriteria) experimentParams[j++], 		//missingsHandler		(8)
-																 (RemoveCriteria) experimentParams[j++], 		//removeMissings		(9)
-																 (double) experimentParams[j++], 				//minFilteringValue		(10)
-																 (PatternType) experimentParams[j++],			//patternType			(11)
-																 (ClosedImplementation) experimentParams[j++],	//closedImplementation	(12)
-																 (Orientation) experimentParams[j++], 			//orientation			(13)
-																 (double) experimentParams[j++], 				//significanceLevel		(14)
-																 (boolean) experimentParams[j++],				//scalability			(15)
-																 (double) experimentParams[j++],				//columnFilteringPerc	(16)
-																 (boolean) experimentParams[j++],				//discriminative		(17)
-																 (String) experimentParams[j++],				//targetClassName		(18)
-																 (boolean) experimentParams[j++],				//printPatternsOnly		(19)
-																 this.experimentSetFileFolder,					//experimentSetFileFolder
-																 outputFilename);								//outputFilename
-														
-			this.experimentList.add(experiment);
-		}
-		
-		System.out.println("Creating experiment layouts... DONE");
+		return experiment;
 	}
 	
 	public void runExperimentSet() throws IOException {
 				
-		//create workbook
-		XSSFWorkbook workbook = new XSSFWorkbook();
+		//create workbook (streamed, only the last rows of each sheet are kept in memory)
+		MetricsWorkbook workbook = new MetricsWorkbook();
 		//create sheets
 		workbook.createSheet("Experiments");
 		workbook.createSheet("Calculations");
 		workbook.createSheet("PurestBiclusters");
+		workbook.createSheet("Stages");
 	
 		//where the start of the current experiment is (in rows of the respective XSLX sheet)
-		int startingRowIndexExperiments = 0;
-		int startingRowIndexCalculations = 0;	
-		int startingRowIndexPurestBiclusters = 0;	
+		this.startingRowIndexExperiments = 0;
+		this.startingRowIndexCalculations = 0;	
+		this.startingRowIndexPurestBiclusters = 0;	
+		this.startingRowIndexStages = 0;
 		
 		//write header for calculations sheet
-		startingRowIndexCalculations = MetricsExperiment.writePurityRowsAvgHeaderToExcelSheet(workbook, startingRowIndexCalculations);
+		this.startingRowIndexCalculations = MetricsExperiment.writePurityRowsAvgHeaderToExcelSheet(workbook, this.startingRowIndexCalculations);
+		//write header for stages sheet
+		this.startingRowIndexStages = StageProfiler.writeStagesHeaderToExcelSheet(workbook, this.startingRowIndexStages);
+		
+		//reuse Biclusters of identical experiments run before (same input file and parameters)
+		this.resultsCache = (this.resultsCacheFolder != null) ? new BiclustersCache(this.resultsCacheFolder) : null;
+		
+		if(this.supportSweep && getSweepSupport() < 0) {
+			System.out.println("WARNING: Support sweep disabled (only used when every stopping criteria is MinSupportPercentageRowsPerBic)");
+		}
+		
+		//results of the mining and closing stages shared between experiments (kept until the last experiment that uses them finishes);
+		//the support sweep always needs the shared mined Biclusters
+		this.minedResults = (this.shareResults || this.supportSweep) ? new SharedResults<Biclusters>() : null;
+		this.closedResults = this.shareResults ? new SharedResults<Biclusters>() : null;
+		this.preprocessedResults = this.shareResults ? new SharedResults<Pair<Dataset, String>>() : null;
+		
+		//experiments completed by a previous (interrupted) run of this experiment set are not run again
+		this.journal = null;
+		if(this.useJournal) {
+			this.journal = new ExperimentJournal(this.experimentSetFileFolder + "/" + "ExperimentSet_journal.txt");
+			if(this.journal.getNumberCompletedExperiments() > 0) {
+				System.out.println("Resuming experiment set: " + this.journal.getNumberCompletedExperiments() + " experiments found in " + this.journal.getJournalFilePath());
+			}
+		}
+		
+		//shared results are removed from memory once the last experiment that uses them finishes
+		countSharedResultConsumers();
 
-		for (Iterator<BicPamsExperiment> iterator = this.experimentList.iterator(); iterator.hasNext();) {
-			BicPamsExperiment experiment = (BicPamsExperiment) iterator.next();
-			try {
-				/**run experiment*/
-				System.out.println("Running experiment with Id " + experiment.getExperimentId() + "...");
-				Biclusters bics = experiment.run();
-				System.out.println("Experiment with Id " + experiment.getExperimentId() + " completed.");
-				
-				/**check translation modes*/
-				//translate Biclusters from indexes to category values
-				if(this.translationMode == TranslationMode.ToCategories) {
-					translator.translate(TranslationMode.ToCategories, bics, experiment, this.experimentSetFileFolder);
-				}		
-				//translate Biclusters from indexes to category values and then to labels
-				else if(this.translationMode == TranslationMode.ToLabels) {
-					translator.translate(TranslationMode.ToLabels, bics, experiment, this.experimentSetFileFolder);
-				}
-				//perform both translation modes
-				else {
-					translator.translate(TranslationMode.ToCategories, bics, experiment, this.experimentSetFileFolder);
-					translator.translate(TranslationMode.ToLabels, bics, experiment, this.experimentSetFileFolder);
-				}			
-				/**evaluate, get csv data and metrics*/
-				if(experiment.isDiscriminative()) {
-					BiclustersEvaluator evaluator = new BiclustersEvaluator(this.csvDataset, bics, experiment.getTargetClassName());
-					
-					//write CSV for classifiers file
-					System.out.println("Writing classifier CSV for experiment with Id " + experiment.getExperimentId() + "...");
-					String csvClassifierData = evaluator.buildClassifierMatrixForCSVFile(experiment.getData());
-					
-					String csvCompleteFilepath = this.experimentSetFileFolder + "/" + experiment.getExperimentId() + "_CSV_classifier_" + this.currentDate + ".csv";
-					Utils.writeFile(csvCompleteFilepath, csvClassifierData);
-					
-					//get experiment metrics
-					System.out.println("Metrics for experiment with Id " + experiment.getExperimentId() + "...");
-					
-					MetricsExperiment metrics = evaluator.getAllClassMetricCalculations();			
-					//System.out.println(metrics.toString());
-					
-					//update starting row index to be able to write all experiments in the same file
-					System.out.println("Writing metrics XLSX file for experiment with Id " + experiment.getExperimentId() + "...");
-					//startingRowIndex = metrics.writeAllDataToExcelSheet(sheet, startingRowIndex, experiment);
-					startingRowIndexExperiments = metrics.writePurityPrecisionDataToExcelSheet(workbook, startingRowIndexExperiments, experiment, translator, this.translationMode);
-					//write calculations on separate sheet
-					startingRowIndexCalculations = metrics.writePurityRowsAvgToExcelSheet(workbook, startingRowIndexCalculations, experiment);
-					
-					//get purest bicluster ids
-					Pair<String, Integer> purestBicsInfo = metrics.getPurestBiclusters(experiment);
-					//if number of discriminative biclusters fits on the maximum number of columns...
-					if(purestBicsInfo.getSecond().intValue() < Utils.MAX_COLS_XLSX - 1) {
-						startingRowIndexPurestBiclusters = metrics.writePurestBiclustersToExcelSheet(workbook, startingRowIndexPurestBiclusters, experiment);
-					}
-					else {
-						//failsafe for when there are more biclusters than available columns in the XLSX file
-						//TO IMPROVE: this should only happen when the discriminative biclusters are too many for the excel sheet,
-						//not the total number of biclusters found
-						
-						//write filename on metrics excel file
-						String purestBicsFileName = experiment.getExperimentId() + "_Purest_Bics_" + this.currentDate + ".txt";
-						startingRowIndexPurestBiclusters = metrics.writePurestBiclustersFileToExcelSheet(workbook, startingRowIndexPurestBiclusters, experiment, purestBicsFileName);
-						//save file
-						String purestBicsFilepath = this.experimentSetFileFolder + "/" + purestBicsFileName;					
-						Utils.writeFile(purestBicsFilepath, purestBicsInfo.getFirst());
-					}					
-				}
-				
-			} catch (Exception e) {
-				System.out.println("Experiment with Id " + experiment.getExperimentId() + " failed.");
-				e.printStackTrace();
-			} 
-			
-			//clear current experiment to free memory (garbage collection flag)
-			iterator.remove();
+		if(this.numberWorkers > 1) {
+			runExperimentsInParallel(workbook);
+		}
+		else {
+			runExperimentsSequentially(workbook);
 		}
 		
 		//if something was written in the Experiments sheet, output it to a file
-		if(startingRowIndexExperiments > 0) {
+		if(this.startingRowIndexExperiments > 0) {
 			
 			//only call this method when there is nothing more to write on each sheet
-			autoSizeColumns(workbook.getSheetAt(0));
-			autoSizeColumns(workbook.getSheetAt(1));
+			//(because different discriminative experiments can have a different number of columns)
+			workbook.setColumnWidths(0);
+			workbook.setColumnWidths(1);
+			workbook.setColumnWidths(3);
 			
 			//output sheet contents to xlsx file
 			String completeFilepath = this.experimentSetFileFolder + "/" + "ClassMetrics_" + this.currentDate + ".xlsx";						
 			
-			FileOutputStream fileOut = new FileOutputStream(completeFilepath);
-			workbook.write(fileOut);
-			fileOut.close();
+			workbook.write(completeFilepath);
 		}
 		
 		//close workbook
 		workbook.close();
 	}
 	
-	private void autoSizeColumns(XSSFSheet sheet) {
+	private void runExperimentsSequentially(MetricsWorkbook workbook) {
 		
-		//autofit column width to contents 
-		//(because different discriminative experiments can have a different number of columns)		
-		int maxColumn = Utils.getMaximumNumberOfColumns(sheet);
+		//experiments are created one at a time, right before running, so that only one Dataset is in memory
+		ParameterCombinationIterator combinations = new ParameterCombinationIterator(this.paramStructure);
 		
-		for(int j = 0; j < maxColumn; j++) {
-			sheet.autoSizeColumn(j);
+		for (int i = 1; combinations.hasNext(); i++) {
+			BicPamsExperiment experiment = createExperiment("Exp_" + i, combinations.next());
+			try {
+				boolean journaled = isJournaled(experiment);
+				MetricsExperiment metrics = journaled ? getJournaledMetrics(experiment) : processAndReleaseExperiment(experiment);
+				writeExperimentMetrics(workbook, experiment, metrics, journaled);
+				writeExperimentStages(workbook, experiment, journaled);
+			} catch (Exception e) {
+				System.out.println("Experiment with Id " + experiment.getExperimentId() + " failed.");
+				e.printStackTrace();
+			} 
 		}
 	}
 	
+	private void runExperimentsInParallel(MetricsWorkbook workbook) {
+		
+		ExecutorService executor = Executors.newFixedThreadPool(this.numberWorkers);
+		//the p-values of all experiments are calculated on one pool with the same number of threads as the experiment set,
+		//instead of on the common pool of the JVM (which would be used by every running experiment at the same time);
+		//an experiment waits for its p-values, so the number of busy threads stays close to the number of workers
+		ForkJoinPool significancePool = new ForkJoinPool(this.numberWorkers);
+		
+		//experiments already submitted whose metrics were not written yet (in experiment id order);
+		//the window is bounded so that finished experiments do not pile up while an earlier one is still running
+		//(and so that only the Datasets of the experiments in the window are in memory)
+		LinkedList<Pair<BicPamsExperiment, Future<MetricsExperiment>>> pending = new LinkedList<Pair<BicPamsExperiment, Future<MetricsExperiment>>>();
+		int maxPending = 2 * this.numberWorkers;
+		//ids of the pending experiments read from the journal (the journal cannot tell them apart once the others complete)
+		Set<String> journaledIds = new HashSet<String>();
+		
+		ParameterCombinationIterator combinations = new ParameterCombinationIterator(this.paramStructure);
+		
+		try {
+			for (int i = 1; combinations.hasNext(); i++) {
+				BicPamsExperiment experiment = createExperiment("Exp_" + i, combinations.next());
+				experiment.setSignificancePool(significancePool);
+				
+				//journaled experiments still go through the window, so that all metrics are written in experiment id order
+				Future<MetricsExperiment> future;
+				if(isJournaled(experiment)) {
+					journaledIds.add(experiment.getExperimentId());
+					future = CompletableFuture.completedFuture(getJournaledMetrics(experiment));
+				}
+				else {
+					future = executor.submit(() -> processAndReleaseExperiment(experiment));
+				}
+				pending.add(new Pair<BicPamsExperiment, Future<MetricsExperiment>>(experiment, future));
+				
+				if(pending.size() >= maxPending) {
+					collectExperiment(workbook, pending.removeFirst(), journaledIds);
+				}
+			}
+			
+			//write the remaining experiments (still in experiment id order)
+			while(!pending.isEmpty()) {
+				collectExperiment(workbook, pending.removeFirst(), journaledIds);
+			}
+		} finally {
+			executor.shutdown();
+			significancePool.shutdown();
+		}
+	}
+	
+	//wait for a submitted experiment and write its metrics on the workbook
+	private void collectExperiment(MetricsWorkbook workbook, Pair<BicPamsExperiment, Future<MetricsExperiment>> submitted, Set<String> journaledIds) {
+		
+		BicPamsExperiment experiment = submitted.getFirst();
+		boolean journaled = journaledIds.remove(experiment.getExperimentId());
+		try {
+			MetricsExperiment metrics = submitted.getSecond().get();
+			writeExperimentMetrics(workbook, experiment, metrics, journaled);
+			writeExperimentStages(workbook, experiment, journaled);
+		} catch (ExecutionException e) {
+			System.out.println("Experiment with Id " + experiment.getExperimentId() + " failed.");
+			e.getCause().printStackTrace();
+		} catch (Exception e) {
+			System.out.println("Experiment with Id " + experiment.getExperimentId() + " failed.");
+			e.printStackTrace();
+		}
+	}
+	
+	//process an experiment and release the shared results it uses (also if it fails)
+	private MetricsExperiment processAndReleaseExperiment(BicPamsExperiment experiment) throws Exception {
+		
+		try {
+			return processExperiment(experiment);
+		}
+		finally {
+			releaseSharedResults(experiment);
+		}
+	}
+	
+	//run, translate and evaluate a single experiment (does not touch the shared workbook, so it can run on any thread);
+	//returns the experiment metrics, or null if the experiment is not discriminative
+	private MetricsExperiment processExperiment(BicPamsExperiment experiment) throws Exception {
+		
+		/**create Dataset object (only now, right before the experiment runs)*/
+		//experiments with the same preprocessing parameters share one preprocessed Dataset, which is only read by the experiments
+		//with a single iteration (the ones with several iterations change their Dataset, so they preprocess their own)
+		if(this.preprocessedResults != null && experiment.getNrIterations() == 1 && experiment.getData() == null) {
+			experiment.setPreprocessedData(this.preprocessedResults.get(experiment.getPreprocessingKey(), 
+					() -> experiment.preprocess(this.datasetLoader.getDataset(experiment.isDiscriminative(), experiment.getTargetClassName()))));
+		}
+		else if(experiment.getData() == null) {
+			experiment.setData(this.datasetLoader.getDataset(experiment.isDiscriminative(), experiment.getTargetClassName()));
+		}
+		experiment.setResultsCache(this.resultsCache);
+		
+		/**run experiment*/
+		System.out.println("Running experiment with Id " + experiment.getExperimentId() + "...");
+		Biclusters bics = experiment.run();
+		System.out.println("Experiment with Id " + experiment.getExperimentId() + " completed.");
+		
+		//output files of the experiment (for the journal)
+		List<String> outputFiles = new ArrayList<String>();
+		outputFiles.add(this.experimentSetFileFolder + "/" + experiment.getOutputFilename());
+		outputFiles.add(BiclustersResultFile.getResultFilePath(this.experimentSetFileFolder + "/" + experiment.getOutputFilename()));
+		outputFiles.add(BiclustersTranslator.getResultFilePath(this.experimentSetFileFolder, experiment));
+		
+		/**check translation modes*/
+		if(this.translationMode != TranslationMode.ToLabels) {
+			outputFiles.add(BiclustersTranslator.getCategoriesFilePath(this.experimentSetFileFolder, experiment));
+		}
+		if(this.translationMode != TranslationMode.ToCategories) {
+			outputFiles.add(BiclustersTranslator.getLabelsFilePath(this.experimentSetFileFolder, experiment));
+		}
+		//when only the purest Biclusters are translated, the Biclusters are translated after they are evaluated
+		boolean selectiveTranslation = this.translationPurityLevel != null && experiment.isDiscriminative();
+		if(!selectiveTranslation) {
+			translateBiclusters(experiment, bics, null);
+		}
+		
+		/**evaluate, get csv data and metrics*/
+		if(!experiment.isDiscriminative()) {
+			recordExperiment(experiment, outputFiles, null);
+			return null;
+		}
+		
+		StageProfiler profiler = experiment.getProfiler();
+		profiler.start("BiclustersEvaluator");
+		BiclustersEvaluator evaluator = new BiclustersEvaluator(getCsvDatasetStore(), bics, experiment.getTargetClassName());
+		
+		//write CSV for classifiers file
+		System.out.println("Writing classifier matrix (" + this.classifierMatrixFormat + ") for experiment with Id " + experiment.getExperimentId() + "...");
+		profiler.start("CSV Writing");
+		String classifierFilePathPrefix = this.experimentSetFileFolder + "/" + experiment.getExperimentId() 
+										  + (this.classifierMatrixFormat == ClassifierMatrixFormat.CSV ? "_CSV" : "") + "_classifier_" + this.currentDate;
+		outputFiles.addAll(evaluator.writeClassifierMatrixToFile(experiment.getData(), classifierFilePathPrefix, this.classifierMatrixFormat));
+		
+		//write NumPy files (membership matrix and metrics), which Python can load without parsing
+		if(this.writeNumpyFiles) {
+			outputFiles.addAll(evaluator.writeNumpyFiles(experiment.getData(), 
+					this.experimentSetFileFolder + "/" + experiment.getExperimentId() + "_numpy_" + this.currentDate));
+		}
+		
+		//get experiment metrics
+		System.out.println("Metrics for experiment with Id " + experiment.getExperimentId() + "...");
+		
+		profiler.start("BiclustersEvaluator (metrics)");
+		MetricsExperiment metrics = evaluator.getAllClassMetricCalculations(experiment.getData());			
+		profiler.stop();
+		//System.out.println(metrics.toString());
+		
+		if(selectiveTranslation) {
+			//no precision level = any precision
+			double precisionLevel = this.translationPrecisionLevel != null ? this.translationPrecisionLevel : 0D;
+			translateBiclusters(experiment, bics, metrics.getDiscriminativeBiclusters(this.translationPurityLevel, precisionLevel));
+		}
+		
+		recordExperiment(experiment, outputFiles, metrics);
+		
+		return metrics;
+	}
+	
+	//translate Biclusters from indexes to category values (ToCategories), to category values and then to labels (ToLabels)
+	//or perform both translation modes (Both, in a single pass over the Biclusters); biclusterIndexes -> Biclusters to translate (null = all)
+	private void translateBiclusters(BicPamsExperiment experiment, Biclusters bics, List<Integer> biclusterIndexes) throws Exception {
+		
+		StageProfiler profiler = experiment.getProfiler();
+		profiler.start("Translation");
+		translator.translate(this.translationMode, bics, biclusterIndexes, experiment, this.experimentSetFileFolder);
+		profiler.stop();
+	}
+	
+	/**SHARED RESULTS*/
+	//count the experiments (not completed yet) that use each shared result
+	private void countSharedResultConsumers() {
+		
+		ParameterCombinationIterator combinations = new ParameterCombinationIterator(this.paramStructure);
+		
+		for (int i = 1; combinations.hasNext(); i++) {
+			BicPamsExperiment experiment = createExperiment("Exp_" + i, combinations.next());
+			if(isJournaled(experiment)) {
+				continue;
+			}
+			if(this.minedResults != null) {
+				this.minedResults.addConsumer(experiment.getMiningKey());
+			}
+			if(this.closedResults != null) {
+				this.closedResults.addConsumer(experiment.getClosingKey());
+			}
+			//only the experiments with a single iteration use the shared preprocessed Datasets
+			if(this.preprocessedResults != null && experiment.getNrIterations() == 1) {
+				this.preprocessedResults.addConsumer(experiment.getPreprocessingKey());
+			}
+		}
+	}
+	
+	//the experiment finished, so the shared results only used by it (and by experiments that already finished) are removed
+	private void releaseSharedResults(BicPamsExperiment experiment) {
+		
+		if(this.minedResults != null) {
+			this.minedResults.release(experiment.getMiningKey());
+		}
+		if(this.closedResults != null) {
+			this.closedResults.release(experiment.getClosingKey());
+		}
+		if(this.preprocessedResults != null && experiment.getNrIterations() == 1) {
+			this.preprocessedResults.release(experiment.getPreprocessingKey());
+		}
+	}
+	
+	/**JOURNAL*/
+	private boolean isJournaled(BicPamsExperiment experiment) {
+		return this.journal != null && this.journal.isCompleted(experiment);
+	}
+	
+	private MetricsExperiment getJournaledMetrics(BicPamsExperiment experiment) {
+		
+		System.out.println("Experiment with Id " + experiment.getExperimentId() + " already completed (journal), skipping.");
+		return this.journal.getMetrics(experiment.getExperimentId());
+	}
+	
+	//the experiment is only journaled once all its files are written
+	private void recordExperiment(BicPamsExperiment experiment, List<String> outputFiles, MetricsExperiment metrics) throws IOException {
+		
+		if(this.journal != null) {
+			this.journal.record(experiment, outputFiles, metrics);
+		}
+	}
+	
+	//write the metrics of an experiment on the shared workbook (always called from the same thread, in experiment id order);
+	//journaled -> true if the metrics were read from the journal (the experiment did not run, so it is not profiled)
+	private void writeExperimentMetrics(MetricsWorkbook workbook, BicPamsExperiment experiment, MetricsExperiment metrics, boolean journaled) throws Exception {
+		
+		//nothing to write for non discriminative experiments
+		if(metrics == null) {
+			return;
+		}
+		
+		//update starting row index to be able to write all experiments in the same file
+		System.out.println("Writing metrics XLSX file for experiment with Id " + experiment.getExperimentId() + "...");
+		if(!journaled) {
+			experiment.getProfiler().start("XLSX Writers");
+		}
+		//startingRowIndex = metrics.writeAllDataToExcelSheet(sheet, startingRowIndex, experiment);
+		this.startingRowIndexExperiments = metrics.writePurityPrecisionDataToExcelSheet(workbook, this.startingRowIndexExperiments, experiment, translator, this.translationMode);
+		//write calculations on separate sheet
+		this.startingRowIndexCalculations = metrics.writePurityRowsAvgToExcelSheet(workbook, this.startingRowIndexCalculations, experiment);
+		
+		//get purest bicluster ids
+		Pair<String, Integer> purestBicsInfo = metrics.getPurestBiclusters(experiment);
+		//if number of discriminative biclusters fits on the maximum number of columns...
+		if(purestBicsInfo.getSecond().intValue() < Utils.MAX_COLS_XLSX - 1) {
+			this.startingRowIndexPurestBiclusters = metrics.writePurestBiclustersToExcelSheet(workbook, this.startingRowIndexPurestBiclusters, experiment);
+		}
+		else {
+			//failsafe for when there are more biclusters than available columns in the XLSX file
+			//TO IMPROVE: this should only happen when the discriminative biclusters are too many for the excel sheet,
+			//not the total number of biclusters found
+			
+			//write filename on metrics excel file
+			String purestBicsFileName = experiment.getExperimentId() + "_Purest_Bics_" + this.currentDate + ".txt";
+			this.startingRowIndexPurestBiclusters = metrics.writePurestBiclustersFileToExcelSheet(workbook, this.startingRowIndexPurestBiclusters, experiment, purestBicsFileName);
+			//save file
+			String purestBicsFilepath = this.experimentSetFileFolder + "/" + purestBicsFileName;					
+			Utils.writeFile(purestBicsFilepath, purestBicsInfo.getFirst());
+		}
+		if(!journaled) {
+			experiment.getProfiler().stop();
+		}
+	}
+	
+	//write the stages of an experiment on the Stages sheet and on its own CSV file (nothing to write for journaled experiments,
+	//whose CSV file was written when they ran)
+	private void writeExperimentStages(MetricsWorkbook workbook, BicPamsExperiment experiment, boolean journaled) throws Exception {
+		
+		StageProfiler profiler = experiment.getProfiler();
+		
+		if(journaled || profiler.getStageNames().isEmpty()) {
+			return;
+		}
+		
+		this.startingRowIndexStages = profiler.writeStagesToExcelSheet(workbook, this.startingRowIndexStages, experiment.getExperimentId());
+		
+		String stagesCompleteFilepath = this.experimentSetFileFolder + "/" + experiment.getExperimentId() + "_stages_" + this.currentDate + ".csv";
+		Utils.writeFile(stagesCompleteFilepath, profiler.toCSV());
+	}
+	
+	//getters and setters
+	public int getNumberExperiments() {
+		return numberExperiments;
+	}
+	
+	public int getNumberWorkers() {
+		return numberWorkers;
+	}
+	
+	//number of experiments that run at the same time (values below 2 run the experiments sequentially)
+	public void setNumberWorkers(int numberWorkers) {
+		this.numberWorkers = numberWorkers;
+	}
+	
+	public String getResultsCacheFolder() {
+		return resultsCacheFolder;
+	}
+	
+	//folder where the Biclusters of each experiment are cached (null to always mine them again)
+	public void setResultsCacheFolder(String resultsCacheFolder) {
+		this.resultsCacheFolder = resultsCacheFolder;
+	}
+	
+	public boolean isShareResults() {
+		return shareResults;
+	}
+	
+	//experiments with the same preprocessing parameters (nrItems, symmetric, missingsHandler, scalability, orientation, columnFilteringPerc,
+	//removeElements and target class) share one preprocessed Dataset (Itemizer and ItemMapper run once);
+	//experiments that only differ in postprocessing parameters (minOverlapMerging, filter and minFilteringValue, with a single iteration), 
+	//significanceLevel or printPatternsOnly share the Biclusters of their mining stage (and of their closing stage, if only significanceLevel
+	//or printPatternsOnly differ); shared results are kept in memory until the last experiment that uses them finishes
+	public void setShareResults(boolean shareResults) {
+		this.shareResults = shareResults;
+	}
+	
+	public boolean isSupportSweep() {
+		return supportSweep;
+	}
+	
+	//experiments with the MinSupportPercentageRowsPerBic stopping criteria that only differ in the support share one mining run, 
+	//done at the lowest support of the experiment set (see BicPamsExperiment.isSupportSweep for the experiments where it applies)
+	public void setSupportSweep(boolean supportSweep) {
+		this.supportSweep = supportSweep;
+	}
+	
+	//lowest support of the experiment set; the stopping criteria values are only supports if every stopping criteria 
+	//of the experiment set is MinSupportPercentageRowsPerBic, otherwise there is no sweep (returns -1)
+	private double getSweepSupport() {
+		
+		for(StoppingCriteria criteria : this.stoppingCriteria) {
+			if(criteria != StoppingCriteria.MinSupportPercentageRowsPerBic) {
+				return -1;
+			}
+		}
+		
+		double sweepSupport = Double.MAX_VALUE;
+		for(Double value : this.stoppingCriteriaValue) {
+			sweepSupport = Math.min(sweepSupport, value);
+		}
+		return sweepSupport;
+	}
+	
+	//CSV dataset columns of all the target classes of the experiment set, read only once 
+	//(synchronized since experiments can be evaluated from several threads)
+	private synchronized CsvColumnStore getCsvDatasetStore() throws Exception {
+		
+		if(this.csvDatasetStore == null) {
+			List<String> columnNames = new ArrayList<String>();
+			columnNames.add(BiclustersEvaluator.SUBJECT_ID_COLUMN_NAME);
+			columnNames.addAll(Arrays.asList(this.targetClassName));
+			this.csvDatasetStore = new CsvColumnStore(this.csvDataset, columnNames.toArray(new String[columnNames.size()]));
+		}
+		return this.csvDatasetStore;
+	}
+	
+	public ClassifierMatrixFormat getClassifierMatrixFormat() {
+		return classifierMatrixFormat;
+	}
+	
+	//CSV (dense, default) or one of the sparse formats (sparse ARFF, LibSVM or Matrix Market), which are much smaller
+	//when there are many biclusters
+	public void setClassifierMatrixFormat(ClassifierMatrixFormat classifierMatrixFormat) {
+		this.classifierMatrixFormat = classifierMatrixFormat;
+	}
+	
+	public boolean isWriteNumpyFiles() {
+		return writeNumpyFiles;
+	}
+	
+	//also write the membership matrix, class labels and metrics of each experiment as NumPy .npy/.npz files
+	public void setWriteNumpyFiles(boolean writeNumpyFiles) {
+		this.writeNumpyFiles = writeNumpyFiles;
+	}
+	
+	public Double getTranslationPurityLevel() {
+		return translationPurityLevel;
+	}
+	
+	public Double getTranslationPrecisionLevel() {
+		return translationPrecisionLevel;
+	}
+	
+	//only translate the Biclusters of discriminative experiments with purity and highest class precision equal or greater than
+	//the given levels (e.g. 0.75 and 0.75 for the purest Biclusters); purityLevel = null translates all Biclusters (default);
+	//the other Biclusters can be translated on demand (BiclustersTranslator.translateBicluster) or read from the translated .bics file
+	public void setSelectiveTranslation(Double purityLevel, Double precisionLevel) {
+		this.translationPurityLevel = purityLevel;
+		this.translationPrecisionLevel = precisionLevel;
+	}
+	
+	public boolean isCompressReports() {
+		return compressReports;
+	}
+	
+	//gzip-compress the output file and the translated Biclusters files of each experiment (".txt.gz"); 
+	//must be set before the experiment set runs
+	public void setCompressReports(boolean compressReports) {
+		this.compressReports = compressReports;
+	}
+	
+	public boolean isUseJournal() {
+		return useJournal;
+	}
+	
+	//journal completed experiments in the experiment set folder, so that a run of the same experiment set
+	//(same folder and date) only runs the experiments that were not completed yet
+	public void setUseJournal(boolean useJournal) {
+		this.useJournal = useJournal;
+	}
+	
 	//utility methods
 	private LinkedHashMap<String, Object[]> createParameterStructure() {
 		
@@ -473,50 +864,6 @@ public class BicPamsExperimentSet {
 		return params;
 	}
 	
-	private Object[][] allUniqueCombinations(LinkedHashMap<String, Object[]> paramStructure){
-
-		List<String> labels = new ArrayList<String>();
-	    List<Object[]> lists = new ArrayList<Object[]>();
-
-	    for (Map.Entry<String, Object[]> entry : paramStructure.entrySet()) {
-	        labels.add(entry.getKey());
-	        lists.add(entry.getValue());
-	    }
-
-	    List<List<Object>> combinations = product(lists);
-	    int m = combinations.size() + 1;
-	    int n = labels.size();
-	    Object[][] answer = new Object[m][n];
-
-	    for (int i = 0; i < n; i++)
-	        answer[0][i] = labels.get(i);
-	    for (int i = 1; i < m; i++)
-	        for (int j = 0; j < n; j++)
-	            answer[i][j] = combinations.get(i-1).get(j);
-
-	    return answer;
-    }
-	
-	private List<List<Object>> product(List<Object[]> lists) {
-
-		List<List<Object>> result = new ArrayList<List<Object>>();
-	    result.add(new ArrayList<Object>());
-
-	    for (Object[] e : lists) {
-	        List<List<Object>> tmp1 = new ArrayList<List<Object>>();
-	        for (List<Object> x : result) {
-	            for (Object y : e) {
-	                List<Object> tmp2 = new ArrayList<Object>(x);
-	                tmp2.add(y);
-	                tmp1.add(tmp2);
-	            }
-	        }
-	        result = tmp1;
-	    }
-
-	    return result;
-	}
-	
 	private Object[] getDefaultParameterArray(String parameterType) {
 		
 		Object[] paramArray = new Object[1];
@@ -0,0 +1,243 @@
+package bic_experiment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.math3.util.Pair;
+
+import domain.Bicluster;
+import domain.Biclusters;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  On-disk cache for the Biclusters found by a BicPamsExperiment.
+ *  Each entry is keyed by a hash of the input ARFF file contents and of all the experiment parameters
+ *  (see BicPamsExperiment.getExperimentInfo), and holds the Biclusters after the p-values were calculated
+ *  (rows, columns, p-values and patterns), before the removal of the non significant ones (not ordered by p-value).
+ */
+
+public class BiclustersCache {
+
+	//file format identification
+	private static final int MAGIC = 0x42494343; 	//"BICC"
+	private static final int VERSION = 1;
+	private static final String EXTENSION = ".bics.gz";
+
+	//folder where cache entries are saved
+	private String cacheFolder;
+	//hashes of the input files already read (file path -> hash)
+	private Map<String, String> fileHashes;
+
+	/**CONSTRUCTOR*/
+	public BiclustersCache(String cacheFolder) {
+
+		this.cacheFolder = cacheFolder;
+		this.fileHashes = new HashMap<String, String>();
+
+		File directory = new File(cacheFolder);
+		if (!directory.exists()){
+			directory.mkdirs();
+		}
+	}
+
+	/**GETTERS*/
+	public String getCacheFolder() {
+		return cacheFolder;
+	}
+
+	/**CACHE KEY*/
+	//hash of the input file contents and of the full parameter tuple of the experiment
+	public String getKey(BicPamsExperiment experiment) throws Exception {
+
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+
+		digest.update(getFileHash(experiment.getFilePath()).getBytes(StandardCharsets.UTF_8));
+
+		for(Pair<String, String> pair : experiment.getExperimentInfo()) {
+			digest.update((pair.getFirst() + "=" + pair.getSecond() + "\n").getBytes(StandardCharsets.UTF_8));
+		}
+
+		return toHex(digest.digest());
+	}
+
+	//hash of a file contents (only calculated once per file)
+	private synchronized String getFileHash(String filePath) throws Exception {
+
+		String hash = this.fileHashes.get(filePath);
+
+		if(hash == null) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			InputStream in = new BufferedInputStream(new FileInputStream(filePath));
+			try {
+				byte[] buffer = new byte[8192];
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					digest.update(buffer, 0, read);
+				}
+			} finally {
+				in.close();
+			}
+			hash = toHex(digest.digest());
+			this.fileHashes.put(filePath, hash);
+		}
+
+		return hash;
+	}
+
+	private static String toHex(byte[] bytes) {
+
+		StringBuilder builder = new StringBuilder();
+		for(byte b : bytes) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+
+	/**LOAD AND STORE*/
+	//returns null if there is no (valid) entry for the given key (invalid entries are deleted)
+	public Biclusters load(String key) {
+
+		File file = new File(this.cacheFolder, key + EXTENSION);
+
+		if(!file.exists()) {
+			return null;
+		}
+
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+			try {
+				if(in.readInt() != MAGIC || in.readInt() != VERSION) {
+					return null;
+				}
+				return readBiclusters(in);
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			//truncated or corrupt entries (which can also fail with runtime exceptions while decoding) are cache misses,
+			//and are deleted so that the Biclusters are mined and stored again
+			System.out.println("WARNING: Cache entry " + file.getPath() + " could not be read -> " + e);
+			file.delete();
+			return null;
+		}
+	}
+
+	public void store(String key, Biclusters bics) throws IOException {
+
+		//write to a temporary file first, so that an interrupted write never leaves a broken entry behind
+		File file = new File(this.cacheFolder, key + EXTENSION);
+		File tempFile = new File(this.cacheFolder, key + EXTENSION + "." + Thread.currentThread().getId() + ".tmp");
+
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tempFile))));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeBiclusters(out, bics);
+		} finally {
+			out.close();
+		}
+
+		if(file.exists()) {
+			file.delete();
+		}
+		if(!tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("BiclustersCache.store: could not save " + file.getPath());
+		}
+	}
+
+	/**SERIALIZATION*/
+	public static void writeBiclusters(DataOutputStream out, Biclusters bics) throws IOException {
+
+		out.writeInt(bics.size());
+
+		for(Bicluster bic : bics.getBiclusters()) {
+			writeIntegers(out, bic.rows);
+			writeIntegers(out, bic.columns);
+			out.writeDouble(bic.pvalue);
+
+			//pattern (may not be computed)
+			if(bic.items == null) {
+				out.writeInt(-1);
+			}
+			else {
+				writeIntegers(out, bic.items);
+			}
+
+			out.writeBoolean(bic.key != null);
+			if(bic.key != null) {
+				out.writeUTF(bic.key);
+			}
+		}
+	}
+
+	public static Biclusters readBiclusters(DataInputStream in) throws IOException {
+
+		Biclusters bics = new Biclusters();
+		int numberBiclusters = in.readInt();
+
+		for(int i = 0; i < numberBiclusters; i++) {
+			SortedSet<Integer> rows = new TreeSet<Integer>(readIntegers(in));
+			SortedSet<Integer> columns = new TreeSet<Integer>(readIntegers(in));
+
+			Bicluster bic = new Bicluster(rows, columns);
+			bic.pvalue = in.readDouble();
+			bic.items = readIntegers(in);
+
+			if(in.readBoolean()) {
+				bic.key = in.readUTF();
+			}
+
+			bics.add(bic);
+		}
+
+		return bics;
+	}
+
+	private static void writeIntegers(DataOutputStream out, Iterable<Integer> values) throws IOException {
+
+		List<Integer> list = new ArrayList<Integer>();
+		for(Integer value : values) {
+			list.add(value);
+		}
+
+		out.writeInt(list.size());
+		for(Integer value : list) {
+			out.writeInt(value);
+		}
+	}
+
+	//returns null for a list written as missing (size -1)
+	private static List<Integer> readIntegers(DataInputStream in) throws IOException {
+
+		int size = in.readInt();
+		if(size < 0) {
+			return null;
+		}
+
+		List<Integer> list = new ArrayList<Integer>(size);
+		for(int i = 0; i < size; i++) {
+			list.add(in.readInt());
+		}
+		return list;
+	}
+}
@@ -0,0 +1,251 @@
+package bic_experiment;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import domain.Bicluster;
+import domain.Biclusters;
+import domain.Dataset;
+import utils.ReportWriter;
+import utils.Utils;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Binary result file of an experiment (".bics", written next to the text output files), with an index of offsets
+ *  so that any Bicluster can be read with a single seek (or from a memory map) instead of scanning the text files.
+ *  All values are little-endian; strings are an int32 length (in bytes, -1 for no value) followed by UTF-8 bytes.
+ *
+ *  header (64 bytes): "BICR", version (int32), number of biclusters (int32), number of column names (int32),
+ *  		number of row names (int32), flags (int32, bit 0 = has translations), index offset (int64),
+ *  		names offset (int64), translations offset (int64, 0 if none), 16 reserved bytes
+ *  records (one per bicluster, 8-byte aligned): p-value (float64), area (int64), number of columns c (int32),
+ *  		number of rows r (int32), column ids (int32[c]), row ids (int32[r]), pattern value of each column (int32[c]),
+ *  		padding up to a multiple of 8 bytes
+ *  index: offset of each record (int64[number of biclusters + 1], the last one is the end of the records)
+ *  names: column names, then row names (strings, ids are positions on these lists)
+ *  translations (optional): for each column name, number of items n (int32), then the category value and the label
+ *  		of each item index (2 * n strings)
+ *
+ *  Bicluster i of the file is BICLUSTER #(i + 1) of the text output files.
+ */
+
+public class BiclustersResultFile {
+
+	//file format identification
+	private static final byte[] MAGIC = {'B', 'I', 'C', 'R'};
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 64;
+	private static final int FLAG_TRANSLATIONS = 1;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	//position on the file of the next value put on the buffer
+	private long position;
+
+	/**CONSTRUCTOR*/
+	private BiclustersResultFile(FileChannel channel) {
+
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		this.position = 0;
+	}
+
+	//path of the binary result file for a given text output file (same name, ".bics" extension)
+	public static String getResultFilePath(String textFilePath) {
+
+		String prefix = textFilePath;
+		if(ReportWriter.isCompressed(prefix)) {
+			prefix = prefix.substring(0, prefix.length() - ReportWriter.GZIP_EXTENSION.length());
+		}
+		if(prefix.endsWith(".txt")) {
+			prefix = prefix.substring(0, prefix.length() - 4);
+		}
+		return prefix + ".bics";
+	}
+
+	/**OUTPUT FILE*/
+	//scalability -> true if the column ids are positions on data.originalColumns (as in the text output files)
+	public static void write(String filePath, Biclusters bics, Dataset data, boolean scalability) throws IOException {
+		write(filePath, bics, data, scalability, null, null);
+	}
+
+	//categories and labels -> translation of each item index, for each column name (null if there are no translations)
+	public static void write(String filePath, Biclusters bics, Dataset data, boolean scalability,
+							 List<String[]> categories, List<String[]> labels) throws IOException {
+
+		List<String> columnNames = scalability ? data.originalColumns : data.columns;
+		List<Bicluster> biclusters = bics.getBiclusters();
+		long[] offsets = new long[biclusters.size() + 1];
+
+		RandomAccessFile file = new RandomAccessFile(filePath, "rw");
+		try {
+			file.setLength(0);
+			BiclustersResultFile writer = new BiclustersResultFile(file.getChannel());
+
+			//header is written at the end (when all offsets are known)
+			writer.skip(HEADER_SIZE);
+
+			/**records*/
+			for(int i = 0; i < biclusters.size(); i++) {
+
+				Bicluster bic = biclusters.get(i);
+				offsets[i] = writer.position;
+
+				writer.putDouble(bic.pvalue);
+				writer.putLong(bic.area());
+				writer.putInt(bic.columns.size());
+				writer.putInt(bic.rows.size());
+				for(int column : bic.columns) {
+					writer.putInt(column);
+				}
+				for(int row : bic.rows) {
+					writer.putInt(row);
+				}
+				for(int value : getPatternValues(data, bic)) {
+					writer.putInt(value);
+				}
+				writer.align(8);
+			}
+			offsets[biclusters.size()] = writer.position;
+
+			/**index*/
+			long indexOffset = writer.position;
+			for(long offset : offsets) {
+				writer.putLong(offset);
+			}
+
+			/**names*/
+			long namesOffset = writer.position;
+			for(String columnName : columnNames) {
+				writer.putString(columnName);
+			}
+			for(String rowName : data.rows) {
+				writer.putString(rowName);
+			}
+
+			/**translations*/
+			long translationsOffset = 0;
+			if(categories != null) {
+				translationsOffset = writer.position;
+				for(int c = 0; c < columnNames.size(); c++) {
+					String[] columnCategories = categories.get(c);
+					String[] columnLabels = labels.get(c);
+
+					int numberItems = columnCategories == null ? 0 : columnCategories.length;
+					writer.putInt(numberItems);
+					for(int item = 0; item < numberItems; item++) {
+						writer.putString(columnCategories[item]);
+						writer.putString(columnLabels == null || item >= columnLabels.length ? null : columnLabels[item]);
+					}
+				}
+			}
+			writer.flush();
+
+			/**header*/
+			writer.position = 0;
+			writer.buffer.put(MAGIC);
+			writer.position += MAGIC.length;
+			writer.putInt(VERSION);
+			writer.putInt(biclusters.size());
+			writer.putInt(columnNames.size());
+			writer.putInt(data.rows.size());
+			writer.putInt(categories != null ? FLAG_TRANSLATIONS : 0);
+			writer.putLong(indexOffset);
+			writer.putLong(namesOffset);
+			writer.putLong(translationsOffset);
+			writer.skip(HEADER_SIZE - writer.buffer.position());
+			writer.flush();
+		}
+		finally {
+			file.close();
+		}
+	}
+
+	/**UTILITY METHODS*/
+	//pattern items of the Bicluster (see Biclusters.computePatterns) if there is one per column,
+	//the values of its first row otherwise (constant pattern of the columns)
+	private static int[] getPatternValues(Dataset data, Bicluster bic) {
+
+		if(bic.items != null && bic.items.size() == bic.columns.size()) {
+			int[] values = new int[bic.items.size()];
+			for(int c = 0; c < values.length; c++) {
+				values[c] = bic.items.get(c);
+			}
+			return values;
+		}
+		return Utils.getConstantPattern(data, bic);
+	}
+
+	private void ensureCapacity(int numberBytes) throws IOException {
+
+		if(this.buffer.remaining() < numberBytes) {
+			flush();
+		}
+		if(this.buffer.capacity() < numberBytes) {
+			this.buffer = ByteBuffer.allocate(numberBytes).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	}
+
+	//write the buffered values on the file, at their position
+	private void flush() throws IOException {
+
+		this.buffer.flip();
+		long writePosition = this.position - this.buffer.remaining();
+		while(this.buffer.hasRemaining()) {
+			writePosition += this.channel.write(this.buffer, writePosition);
+		}
+		this.buffer.clear();
+	}
+
+	private void putInt(int value) throws IOException {
+		ensureCapacity(4);
+		this.buffer.putInt(value);
+		this.position += 4;
+	}
+
+	private void putLong(long value) throws IOException {
+		ensureCapacity(8);
+		this.buffer.putLong(value);
+		this.position += 8;
+	}
+
+	private void putDouble(double value) throws IOException {
+		ensureCapacity(8);
+		this.buffer.putDouble(value);
+		this.position += 8;
+	}
+
+	private void putString(String value) throws IOException {
+
+		if(value == null) {
+			putInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		putInt(bytes.length);
+		ensureCapacity(bytes.length);
+		this.buffer.put(bytes);
+		this.position += bytes.length;
+	}
+
+	//zero bytes
+	private void skip(int numberBytes) throws IOException {
+		for(int b = 0; b < numberBytes; b++) {
+			ensureCapacity(1);
+			this.buffer.put((byte) 0);
+			this.position++;
+		}
+	}
+
+	private void align(int alignment) throws IOException {
+		skip((int) ((alignment - this.position % alignment) % alignment));
+	}
+}
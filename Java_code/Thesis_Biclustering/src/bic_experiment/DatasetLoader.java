@@ -0,0 +1,100 @@
+package bic_experiment;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import domain.Dataset;
+import utils.BicReader;
+import weka.core.Attribute;
+import weka.core.Instances;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Remove;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Loads the ARFF dataset of an experiment set only once and hands each experiment its own Dataset.
+ *  The parsed Instances (with the target class already removed, for discriminative experiments)
+ *  are kept and shared, so only the Dataset object (which is changed by the Itemizer and by the
+ *  mining iterations) is built again for every experiment.
+ */
+
+public class DatasetLoader {
+
+	//path to the input ARFF dataset file
+	private String datasetFilePath;
+	//instances read from the dataset file (null until first requested)
+	private Instances instances;
+	//instances without the target class, per target class name
+	private Map<String, Instances> instancesWithoutTargetClass;
+
+	/**CONSTRUCTOR*/
+	public DatasetLoader(String datasetFilePath) {
+
+		this.datasetFilePath = datasetFilePath;
+		this.instances = null;
+		this.instancesWithoutTargetClass = new HashMap<String, Instances>();
+	}
+
+	/**GETTERS*/
+	public String getDatasetFilePath() {
+		return datasetFilePath;
+	}
+
+	//new Dataset object for one experiment (synchronized since experiments can be defined from several threads)
+	public synchronized Dataset getDataset(boolean discriminative, String targetClassName) throws Exception {
+
+		return new Dataset(getInstances(discriminative, targetClassName));
+	}
+
+	//shared instances for one experiment (must not be changed by the caller)
+	public synchronized Instances getInstances(boolean discriminative, String targetClassName) throws Exception {
+
+		/** Read Instances object for Dataset creation (only once for the whole experiment set) **/
+		if(this.instances == null) {
+			this.instances = BicReader.getInstances(this.datasetFilePath);
+		}
+
+		if(!discriminative) {
+			return this.instances;
+		}
+
+		//remove target class from dataset if experiment is discriminative (tends to appear on biclusters)
+		Instances filteredInstances = this.instancesWithoutTargetClass.get(targetClassName);
+
+		if(filteredInstances == null) {
+			filteredInstances = removeTargetClass(this.instances, targetClassName);
+			this.instancesWithoutTargetClass.put(targetClassName, filteredInstances);
+		}
+
+		return filteredInstances;
+	}
+
+	private Instances removeTargetClass(Instances instances, String targetClassName) throws Exception {
+
+		int targetClassIndex = -1;
+
+		//find target class attribute index
+		ArrayList<Attribute> attributes = instances.getAttributes();
+		for(Attribute att : attributes) {
+			if(att.name().equals(targetClassName)) {
+				targetClassIndex = att.index();
+			}
+		}
+
+		//only delete attribute if it was really found
+		if(targetClassIndex == -1) {
+			return instances;
+		}
+
+		//the filter returns a new Instances object, so the instances read from the file stay untouched
+		Remove removeFilter = new Remove();
+		int[] to_remove = {targetClassIndex};
+		removeFilter.setAttributeIndicesArray(to_remove);
+		removeFilter.setInputFormat(instances);
+
+		return Filter.useFilter(instances, removeFilter);
+	}
+}
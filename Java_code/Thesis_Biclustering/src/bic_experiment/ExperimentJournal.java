@@ -0,0 +1,308 @@
+package bic_experiment;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.math3.util.Pair;
+
+import bic_metrics.MetricsExperiment;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Append-only journal with the experiments of an experiment set that were already completed.
+ *  Each completed experiment is written as one block of tab separated lines (parameters, output files and metrics)
+ *  that ends with an END line, and the file is synced to disk after every block, so that an interrupted
+ *  experiment set can be run again and only the missing experiments are run (the metrics of the others are read
+ *  from the journal to rebuild the XLSX file). Blocks without the END line (interrupted writes) are ignored.
+ */
+
+public class ExperimentJournal {
+
+	//line types
+	private static final String EXPERIMENT = "EXPERIMENT";
+	private static final String PARAMETER = "PARAMETER";
+	private static final String FILE = "FILE";
+	private static final String SOLUTION = "SOLUTION";
+	private static final String CLASSES = "CLASSES";
+	private static final String BIC = "BIC";
+	private static final String END = "END";
+	private static final String SEPARATOR = "\t";
+
+	//path to the journal file
+	private String journalFilePath;
+	//completed experiments read from the journal (experiment id -> parameters, output files and metrics)
+	private Map<String, String> experimentParameters;
+	private Map<String, List<String>> experimentFiles;
+	private Map<String, MetricsExperiment> experimentMetrics;
+	//flag to know if the journal ends with an incomplete line (interrupted write) that has to be terminated first
+	private boolean incompleteLastLine;
+
+	/**CONSTRUCTOR*/
+	public ExperimentJournal(String journalFilePath) throws IOException {
+
+		this.journalFilePath = journalFilePath;
+		this.experimentParameters = new HashMap<String, String>();
+		this.experimentFiles = new HashMap<String, List<String>>();
+		this.experimentMetrics = new HashMap<String, MetricsExperiment>();
+		this.incompleteLastLine = false;
+
+		File journalFile = new File(journalFilePath);
+		if(journalFile.exists() && journalFile.length() > 0) {
+			read();
+
+			RandomAccessFile file = new RandomAccessFile(journalFile, "r");
+			try {
+				file.seek(file.length() - 1);
+				this.incompleteLastLine = (file.read() != '\n');
+			} finally {
+				file.close();
+			}
+		}
+	}
+
+	/**GETTERS*/
+	public String getJournalFilePath() {
+		return journalFilePath;
+	}
+
+	public int getNumberCompletedExperiments() {
+		return experimentParameters.size();
+	}
+
+	//an experiment only counts as completed if it was journaled with exactly the same parameters
+	public boolean isCompleted(BicPamsExperiment experiment) {
+
+		String parameters = this.experimentParameters.get(experiment.getExperimentId());
+		return parameters != null && parameters.equals(getParameters(experiment));
+	}
+
+	//metrics of a completed experiment (null if the experiment is not discriminative)
+	public MetricsExperiment getMetrics(String experimentId) {
+		return experimentMetrics.get(experimentId);
+	}
+
+	public List<String> getOutputFiles(String experimentId) {
+		return experimentFiles.get(experimentId);
+	}
+
+	/**WRITE*/
+	//append a completed experiment to the journal (synchronized since experiments complete on several threads)
+	public synchronized void record(BicPamsExperiment experiment, List<String> outputFiles, MetricsExperiment metrics) throws IOException {
+
+		String experimentId = experiment.getExperimentId();
+		StringBuilder block = new StringBuilder();
+
+		if(this.incompleteLastLine) {
+			block.append("\n");
+			this.incompleteLastLine = false;
+		}
+		block.append(EXPERIMENT + SEPARATOR + experimentId + "\n");
+		for(Pair<String, String> pair : getJournalInfo(experiment)) {
+			block.append(PARAMETER + SEPARATOR + pair.getFirst() + SEPARATOR + pair.getSecond() + "\n");
+		}
+		for(String outputFile : outputFiles) {
+			block.append(FILE + SEPARATOR + outputFile + "\n");
+		}
+
+		if(metrics != null) {
+			block.append(SOLUTION + SEPARATOR + metrics.getNumberRowsDataset() + SEPARATOR + metrics.getEntropyBiclustering()
+						 + SEPARATOR + metrics.getPurityBiclustering() + "\n");
+
+			block.append(CLASSES);
+			for(String classValue : metrics.getTargetClassValues()) {
+				block.append(SEPARATOR + classValue);
+			}
+			block.append("\n");
+
+			//one line per bicluster: rows, p-value, entropy, purity and precision, recall and f-measure of each class
+			for(int i = 0; i < metrics.getPValueBiclusters().size(); i++) {
+				block.append(BIC + SEPARATOR + metrics.getNumberRowsBiclusters().get(i) + SEPARATOR + metrics.getPValueBiclusters().get(i)
+							 + SEPARATOR + metrics.getEntropyBiclusters().get(i) + SEPARATOR + metrics.getPurityBiclusters().get(i));
+				appendClassValues(block, metrics.getPrecisionClassBiclusters().get(i));
+				appendClassValues(block, metrics.getRecallClassBiclusters().get(i));
+				appendClassValues(block, metrics.getfMeasureClassBiclusters().get(i));
+				block.append("\n");
+			}
+		}
+
+		block.append(END + SEPARATOR + experimentId + "\n");
+
+		//append and force the block to disk before the experiment is considered completed
+		FileOutputStream out = new FileOutputStream(this.journalFilePath, true);
+		try {
+			out.write(block.toString().getBytes(StandardCharsets.UTF_8));
+			out.flush();
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+
+		this.experimentParameters.put(experimentId, getParameters(experiment));
+		this.experimentFiles.put(experimentId, new ArrayList<String>(outputFiles));
+		this.experimentMetrics.put(experimentId, metrics);
+	}
+
+	private void appendClassValues(StringBuilder block, List<Pair<String, Double>> classValues) {
+
+		for(Pair<String, Double> classValue : classValues) {
+			block.append(SEPARATOR + classValue.getSecond());
+		}
+	}
+
+	/**READ*/
+	private void read() throws IOException {
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(this.journalFilePath), StandardCharsets.UTF_8));
+
+		try {
+			//block being read
+			String experimentId = null;
+			StringBuilder parameters = null;
+			List<String> files = null;
+			List<String> solution = null;
+			List<String> classes = null;
+			List<String[]> bics = null;
+
+			String line;
+			while((line = reader.readLine()) != null) {
+
+				String[] fields = line.split(SEPARATOR, -1);
+
+				//every line has at least its type and one field (shorter lines come from interrupted writes)
+				if(fields.length < 2) {
+					continue;
+				}
+				else if(fields[0].equals(EXPERIMENT)) {
+					experimentId = fields[1];
+					parameters = new StringBuilder();
+					files = new ArrayList<String>();
+					solution = null;
+					classes = null;
+					bics = new ArrayList<String[]>();
+				}
+				//lines outside of a block (after an interrupted write) are skipped
+				else if(experimentId == null) {
+					continue;
+				}
+				else if(fields[0].equals(PARAMETER)) {
+					parameters.append(fields[1] + "=" + (fields.length > 2 ? fields[2] : "") + "\n");
+				}
+				else if(fields[0].equals(FILE)) {
+					files.add(fields[1]);
+				}
+				else if(fields[0].equals(SOLUTION)) {
+					solution = toList(fields);
+				}
+				else if(fields[0].equals(CLASSES)) {
+					classes = toList(fields);
+				}
+				else if(fields[0].equals(BIC)) {
+					bics.add(fields);
+				}
+				else if(fields[0].equals(END) && fields[1].equals(experimentId)) {
+					try {
+						MetricsExperiment metrics = (solution == null) ? null : buildMetrics(solution, classes, bics);
+						//the last block of an experiment wins (an experiment can be journaled again after its parameters changed)
+						this.experimentParameters.put(experimentId, parameters.toString());
+						this.experimentFiles.put(experimentId, files);
+						this.experimentMetrics.put(experimentId, metrics);
+					} catch (RuntimeException e) {
+						System.out.println("WARNING: Journal entry of experiment " + experimentId + " could not be read -> " + e.getMessage());
+					}
+					experimentId = null;
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private MetricsExperiment buildMetrics(List<String> solution, List<String> classes, List<String[]> bics) {
+
+		int numberRowsDataset = Integer.parseInt(solution.get(0));
+		Double entropyBiclustering = Double.valueOf(solution.get(1));
+		Double purityBiclustering = Double.valueOf(solution.get(2));
+
+		Set<String> targetClassValues = new TreeSet<String>(classes);
+		int numberClasses = classes.size();
+
+		List<Integer> numberRowsBiclusters = new ArrayList<Integer>();
+		List<Double> pValueBiclusters = new ArrayList<Double>();
+		List<Double> entropyBiclusters = new ArrayList<Double>();
+		List<Double> purityBiclusters = new ArrayList<Double>();
+		Map<Integer, List<Pair<String, Double>>> precisionClassBiclusters = new TreeMap<Integer, List<Pair<String, Double>>>();
+		Map<Integer, List<Pair<String, Double>>> recallClassBiclusters = new TreeMap<Integer, List<Pair<String, Double>>>();
+		Map<Integer, List<Pair<String, Double>>> fMeasureClassBiclusters = new TreeMap<Integer, List<Pair<String, Double>>>();
+
+		for(int i = 0; i < bics.size(); i++) {
+			String[] fields = bics.get(i);
+
+			numberRowsBiclusters.add(Integer.parseInt(fields[1]));
+			pValueBiclusters.add(Double.valueOf(fields[2]));
+			entropyBiclusters.add(Double.valueOf(fields[3]));
+			purityBiclusters.add(Double.valueOf(fields[4]));
+
+			precisionClassBiclusters.put(i, readClassValues(fields, 5, classes));
+			recallClassBiclusters.put(i, readClassValues(fields, 5 + numberClasses, classes));
+			fMeasureClassBiclusters.put(i, readClassValues(fields, 5 + 2 * numberClasses, classes));
+		}
+
+		return new MetricsExperiment(targetClassValues, entropyBiclustering, purityBiclustering, pValueBiclusters,
+									 entropyBiclusters, purityBiclusters, precisionClassBiclusters, recallClassBiclusters,
+									 fMeasureClassBiclusters, numberRowsBiclusters, numberRowsDataset);
+	}
+
+	private List<Pair<String, Double>> readClassValues(String[] fields, int start, List<String> classes) {
+
+		List<Pair<String, Double>> classValues = new ArrayList<Pair<String, Double>>(classes.size());
+		for(int j = 0; j < classes.size(); j++) {
+			classValues.add(new Pair<String, Double>(classes.get(j), Double.valueOf(fields[start + j])));
+		}
+		return classValues;
+	}
+
+	/**UTILITY METHODS*/
+	//fields of a line without the line type
+	private static List<String> toList(String[] fields) {
+
+		List<String> list = new ArrayList<String>();
+		for(int i = 1; i < fields.length; i++) {
+			list.add(fields[i]);
+		}
+		return list;
+	}
+
+	private static String getParameters(BicPamsExperiment experiment) {
+
+		StringBuilder parameters = new StringBuilder();
+		for(Pair<String, String> pair : getJournalInfo(experiment)) {
+			parameters.append(pair.getFirst() + "=" + pair.getSecond() + "\n");
+		}
+		return parameters.toString();
+	}
+
+	//parameters of the experiment plus the ones that change its output files without being experiment parameters
+	//(input dataset file and printPatternsOnly), so that changing them runs the experiment again
+	private static List<Pair<String, String>> getJournalInfo(BicPamsExperiment experiment) {
+
+		List<Pair<String, String>> info = new ArrayList<Pair<String, String>>(experiment.getExperimentInfo());
+		info.add(new Pair<String, String>("Input File:", experiment.getFilePath()));
+		info.add(new Pair<String, String>("Print Patterns Only:", "" + experiment.getPrintPatternsOnly()));
+		return info;
+	}
+}
@@ -0,0 +1,137 @@
+package bic_experiment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import bicpam.significance.BSignificance;
+import domain.Bicluster;
+import domain.Biclusters;
+import domain.Dataset;
+import generator.BicMatrixGenerator.PatternType;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Significance stage of an experiment on a ForkJoinPool: the Biclusters are split in chunks and the p-values
+ *  of each chunk are calculated by BSignificance on a different task (the p-value of a Bicluster only depends on the
+ *  Bicluster and the Dataset, so the results are the same as with a single BSignificance call).
+ *  Biclusters that are not significant are dropped by the tasks, so that only the significant ones are ordered by p-value
+ *  (calculate keeps all the Biclusters, for results that are shared by experiments with different significance levels).
+ *  The Dataset is only read, so it can be shared by all tasks (and experiments).
+ */
+
+public class ParallelSignificance {
+
+	//minimum number of Biclusters of a chunk (BSignificance calculates the column frequencies of the Dataset on each call)
+	public static final int MIN_CHUNK_SIZE = 64;
+	//number of chunks per thread of the pool (so that threads with faster chunks can take more of them)
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	private ForkJoinPool pool;
+
+	/**CONSTRUCTORS*/
+	//shared pool of the JVM (for experiments that run one at a time)
+	public ParallelSignificance() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	//bounded pool shared by the experiments that run at the same time
+	public ParallelSignificance(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**SIGNIFICANCE*/
+	//calculate the p-values of the Biclusters (patterns must have been computed) and return the ones with a p-value
+	//lower than the significance level (null to keep all Biclusters), ordered by p-value
+	public Biclusters run(Dataset data, Biclusters bics, PatternType patternType, Double significanceLevel) {
+
+		Biclusters significantBics = new Biclusters();
+		for(Bicluster bic : calculate(data, bics.getBiclusters(), patternType, significanceLevel)) {
+			significantBics.add(bic);
+		}
+		//order biclusters by p-value
+		significantBics.orderPValue();
+
+		return significantBics;
+	}
+
+	//calculate the p-values of all the Biclusters (patterns must have been computed), without removing or ordering them
+	public void calculate(Dataset data, Biclusters bics, PatternType patternType) {
+		calculate(data, bics.getBiclusters(), patternType, null);
+	}
+
+	private List<Bicluster> calculate(Dataset data, List<Bicluster> biclusters, PatternType patternType, Double significanceLevel) {
+
+		int numberChunks = Math.max(1, this.pool.getParallelism() * CHUNKS_PER_THREAD);
+		int chunkSize = Math.max(MIN_CHUNK_SIZE, (biclusters.size() + numberChunks - 1) / numberChunks);
+
+		if(biclusters.size() <= chunkSize) {
+			//a single chunk, on the calling thread
+			return new SignificanceTask(data, biclusters, patternType, significanceLevel, chunkSize).compute();
+		}
+		return this.pool.invoke(new SignificanceTask(data, biclusters, patternType, significanceLevel, chunkSize));
+	}
+
+	//p-values of a range of Biclusters (split in two tasks while larger than the chunk size);
+	//returns the significant Biclusters of the range, in their original order
+	private static class SignificanceTask extends RecursiveTask<List<Bicluster>> {
+
+		private static final long serialVersionUID = 1L;
+
+		private Dataset data;
+		private List<Bicluster> biclusters;
+		private PatternType patternType;
+		private Double significanceLevel;
+		private int chunkSize;
+
+		private SignificanceTask(Dataset data, List<Bicluster> biclusters, PatternType patternType, Double significanceLevel, int chunkSize) {
+
+			this.data = data;
+			this.biclusters = biclusters;
+			this.patternType = patternType;
+			this.significanceLevel = significanceLevel;
+			this.chunkSize = chunkSize;
+		}
+
+		@Override
+		protected List<Bicluster> compute() {
+
+			if(this.biclusters.size() > this.chunkSize) {
+				int middle = this.biclusters.size() / 2;
+				SignificanceTask left = new SignificanceTask(this.data, this.biclusters.subList(0, middle), this.patternType, this.significanceLevel, this.chunkSize);
+				SignificanceTask right = new SignificanceTask(this.data, this.biclusters.subList(middle, this.biclusters.size()), this.patternType, this.significanceLevel, this.chunkSize);
+
+				left.fork();
+				List<Bicluster> significant = right.compute();
+				List<Bicluster> result = left.join();
+				result.addAll(significant);
+				return result;
+			}
+
+			Biclusters chunk = new Biclusters();
+			for(Bicluster bic : this.biclusters) {
+				chunk.add(bic);
+			}
+
+			if(this.patternType == PatternType.OrderPreserving) {
+				BSignificance.runOrderPreserving(this.data, chunk);
+			}
+			else {
+				//calculate p-value considering that each feature may have a different distribution (non-iid)
+				BSignificance.runConstantFreqColumn(this.data, chunk);
+			}
+
+			List<Bicluster> significant = new ArrayList<Bicluster>(this.biclusters.size());
+			for(Bicluster bic : this.biclusters) {
+				//remove biclusters with p-value larger than the significance level (not statistically relevant)
+				if(this.significanceLevel == null || bic.pvalue < this.significanceLevel) {
+					significant.add(bic);
+				}
+			}
+			return significant;
+		}
+	}
+}
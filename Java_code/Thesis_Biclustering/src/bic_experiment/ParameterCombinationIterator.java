@@ -0,0 +1,105 @@
+package bic_experiment;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Lazy iterator over all unique combinations of the values given for each parameter (cartesian product).
+ *  Each combination is only created when requested, in the same order as the full cartesian product
+ *  (the first parameter changes slowest, the last parameter changes fastest).
+ */
+
+public class ParameterCombinationIterator implements Iterator<Object[]> {
+
+	//parameter names and values (same order as the parameter structure)
+	private List<String> labels;
+	private List<Object[]> lists;
+	//index of the current value of each parameter
+	private int[] positions;
+	//flag to know if there are combinations left
+	private boolean hasNext;
+
+	/**CONSTRUCTOR*/
+	public ParameterCombinationIterator(LinkedHashMap<String, Object[]> paramStructure) {
+
+		this.labels = new ArrayList<String>();
+		this.lists = new ArrayList<Object[]>();
+
+		for (Map.Entry<String, Object[]> entry : paramStructure.entrySet()) {
+			this.labels.add(entry.getKey());
+			this.lists.add(entry.getValue());
+		}
+
+		this.positions = new int[this.lists.size()];
+
+		//if any parameter has no values there are no combinations at all
+		this.hasNext = true;
+		for (Object[] values : this.lists) {
+			if(values == null || values.length == 0) {
+				this.hasNext = false;
+			}
+		}
+	}
+
+	/**GETTERS*/
+	public List<String> getLabels() {
+		return labels;
+	}
+
+	//total number of combinations (without creating them)
+	public static int getNumberCombinations(LinkedHashMap<String, Object[]> paramStructure) {
+
+		int numberCombinations = 1;
+
+		for (Object[] values : paramStructure.values()) {
+			numberCombinations *= (values == null ? 0 : values.length);
+		}
+
+		return numberCombinations;
+	}
+
+	/**ITERATOR METHODS*/
+	@Override
+	public boolean hasNext() {
+		return this.hasNext;
+	}
+
+	@Override
+	public Object[] next() {
+
+		if(!this.hasNext) {
+			throw new NoSuchElementException("ParameterCombinationIterator.next");
+		}
+
+		//build current combination
+		Object[] combination = new Object[this.lists.size()];
+		for (int i = 0; i < combination.length; i++) {
+			combination[i] = this.lists.get(i)[this.positions[i]];
+		}
+
+		//advance to the next combination (last parameter first)
+		int i = this.positions.length - 1;
+		while(i >= 0) {
+			this.positions[i]++;
+			if(this.positions[i] < this.lists.get(i).length) {
+				break;
+			}
+			this.positions[i] = 0;
+			i--;
+		}
+
+		//all positions went back to zero, so every combination was already returned
+		if(i < 0) {
+			this.hasNext = false;
+		}
+
+		return combination;
+	}
+}
@@ -0,0 +1,81 @@
+package bic_experiment;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Results that are shared by several experiments of an experiment set (in memory), identified by a key.
+ *  Each result is only computed once: experiments that ask for a result that is still being computed
+ *  (on another thread) wait for it instead of computing it again.
+ *  A failed computation is not kept, so the next experiment that asks for it tries again.
+ *  The experiments that use each key are counted before they run (addConsumer), and each experiment releases its keys
+ *  when it finishes (release), so that a result is removed as soon as the last experiment that uses it is done.
+ */
+
+public class SharedResults<V> {
+
+	//results (finished or still being computed) per key
+	private ConcurrentHashMap<String, FutureTask<V>> results;
+	//number of experiments per key that did not finish yet
+	private ConcurrentHashMap<String, AtomicInteger> consumers;
+
+	/**CONSTRUCTOR*/
+	public SharedResults() {
+		this.results = new ConcurrentHashMap<String, FutureTask<V>>();
+		this.consumers = new ConcurrentHashMap<String, AtomicInteger>();
+	}
+
+	/**GETTERS*/
+	public int size() {
+		return results.size();
+	}
+
+	//result for the given key (computed on the calling thread if nobody computed it before)
+	public V get(String key, Callable<V> computation) throws Exception {
+
+		FutureTask<V> task = new FutureTask<V>(computation);
+		FutureTask<V> existingTask = this.results.putIfAbsent(key, task);
+
+		if(existingTask == null) {
+			existingTask = task;
+			task.run();
+		}
+
+		try {
+			return existingTask.get();
+		} catch (ExecutionException e) {
+			this.results.remove(key, existingTask);
+			if(e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	public void remove(String key) {
+		this.results.remove(key);
+	}
+
+	/**CONSUMERS*/
+	//one more experiment uses the result of the given key (called before the experiments run)
+	public void addConsumer(String key) {
+		this.consumers.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+	}
+
+	//an experiment that uses the result of the given key finished (successfully or not);
+	//the result is removed after its last experiment (or right away if the key was not counted)
+	public void release(String key) {
+
+		AtomicInteger count = this.consumers.get(key);
+		if(count == null || count.decrementAndGet() <= 0) {
+			this.consumers.remove(key);
+			this.results.remove(key);
+		}
+	}
+}
@@ -0,0 +1,210 @@
+package bic_experiment;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+
+import bic_metrics.MetricsWorkbook;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Wall time, allocated bytes and peak heap of each stage of a BicPamsExperiment
+ *  (preprocessing, mining, closing, significance, translation, evaluation and output files).
+ *  Stages are measured one at a time (start/stop) on the thread that runs them.
+ *  Allocated bytes are the bytes allocated by that thread (-1 if the JVM cannot measure them).
+ *  The peak heap is the highest heap usage of the whole JVM: the JVM peaks are reset when each stage starts, 
+ *  so it is the peak during the stage, but only when experiments run sequentially (resetPeakHeap = true). 
+ *  When experiments run in parallel, resetting the JVM peaks would clear the peak of the stages still running 
+ *  on other threads, so they are never reset (resetPeakHeap = false) and the peak heap of a stage is the highest 
+ *  heap usage since the JVM started (or since the last sequential reset), including the memory of the other experiments.
+ */
+
+public class StageProfiler {
+
+	//measured stages (in the order they were run)
+	private List<String> stageNames;
+	private List<Long> wallTimes;			//ms
+	private List<Long> allocatedBytes;
+	private List<Long> peakHeaps;			//bytes
+
+	//stage being measured (null if none)
+	private String currentStage;
+	private long currentStartTime;
+	private long currentStartAllocatedBytes;
+	//flag to know if the JVM peak heap is reset at the start of each stage (only when experiments run sequentially)
+	private boolean resetPeakHeap;
+
+	/**CONSTRUCTOR*/
+	public StageProfiler() {
+		this(true);
+	}
+
+	public StageProfiler(boolean resetPeakHeap) {
+
+		this.stageNames = new ArrayList<String>();
+		this.wallTimes = new ArrayList<Long>();
+		this.allocatedBytes = new ArrayList<Long>();
+		this.peakHeaps = new ArrayList<Long>();
+		this.currentStage = null;
+		this.resetPeakHeap = resetPeakHeap;
+	}
+
+	/**GETTERS*/
+	public List<String> getStageNames() {
+		return stageNames;
+	}
+
+	public List<Long> getWallTimes() {
+		return wallTimes;
+	}
+
+	public List<Long> getAllocatedBytes() {
+		return allocatedBytes;
+	}
+
+	public List<Long> getPeakHeaps() {
+		return peakHeaps;
+	}
+
+	public boolean isResetPeakHeap() {
+		return resetPeakHeap;
+	}
+
+	//must be false when stages of several experiments can run at the same time
+	public void setResetPeakHeap(boolean resetPeakHeap) {
+		this.resetPeakHeap = resetPeakHeap;
+	}
+
+	/**MEASUREMENT*/
+	//start measuring a stage (a stage still being measured is stopped first)
+	public void start(String stageName) {
+
+		if(this.currentStage != null) {
+			stop();
+		}
+
+		if(this.resetPeakHeap) {
+			resetPeakHeap();
+		}
+		this.currentStage = stageName;
+		this.currentStartAllocatedBytes = getThreadAllocatedBytes();
+		this.currentStartTime = System.nanoTime();
+	}
+
+	public void stop() {
+
+		if(this.currentStage == null) {
+			return;
+		}
+
+		long wallTime = (System.nanoTime() - this.currentStartTime) / 1000000;
+		long allocated = getThreadAllocatedBytes();
+
+		this.stageNames.add(this.currentStage);
+		this.wallTimes.add(wallTime);
+		this.allocatedBytes.add((allocated < 0 || this.currentStartAllocatedBytes < 0) ? -1 : allocated - this.currentStartAllocatedBytes);
+		this.peakHeaps.add(getPeakHeap());
+
+		this.currentStage = null;
+	}
+
+	//bytes allocated by the current thread since it started (-1 if not supported)
+	private static long getThreadAllocatedBytes() {
+
+		java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+		if(threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+			if(sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+				return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+
+		return -1;
+	}
+
+	private static void resetPeakHeap() {
+
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP && pool.isValid()) {
+				pool.resetPeakUsage();
+			}
+		}
+	}
+
+	//sum of the peak usage of all heap memory pools since the last reset (sampled without resetting them)
+	private static long getPeakHeap() {
+
+		long peakHeap = 0;
+
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType() == MemoryType.HEAP && pool.isValid() && pool.getPeakUsage() != null) {
+				peakHeap += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		return peakHeap;
+	}
+
+	/**OUTPUT*/
+	public String toCSV() {
+
+		StringBuffer result = new StringBuffer();
+		result.append("Stage,Wall Time (ms),Allocated Bytes,Peak Heap (bytes)\n");
+
+		for(int i = 0; i < this.stageNames.size(); i++) {
+			result.append(this.stageNames.get(i) + "," + this.wallTimes.get(i) + "," + this.allocatedBytes.get(i) + "," + this.peakHeaps.get(i) + "\n");
+		}
+
+		return result.toString();
+	}
+
+	public static int writeStagesHeaderToExcelSheet(MetricsWorkbook workbook, int startingRowIndex) {
+
+		int rowIndex = startingRowIndex;
+
+		/**Get Stages sheet*/
+		int sheetIndex = 3;
+
+		//header
+		int colIndex = 0;
+
+		Row row = workbook.createRow(sheetIndex, rowIndex++);
+
+		row.createCell(colIndex++).setCellValue("Experiment Id");
+		row.createCell(colIndex++).setCellValue("Stage");
+		row.createCell(colIndex++).setCellValue("Wall Time (ms)");
+		row.createCell(colIndex++).setCellValue("Allocated Bytes");
+		row.createCell(colIndex++).setCellValue("Peak Heap (bytes)");
+
+		return rowIndex;
+	}
+
+	public int writeStagesToExcelSheet(MetricsWorkbook workbook, int startingRowIndex, String experimentId) {
+
+		int rowIndex = startingRowIndex;
+
+		/**Get Stages sheet*/
+		int sheetIndex = 3;
+
+		for(int i = 0; i < this.stageNames.size(); i++) {
+			int colIndex = 0;
+
+			Row row = workbook.createRow(sheetIndex, rowIndex++);
+
+			row.createCell(colIndex++).setCellValue(experimentId);
+			row.createCell(colIndex++).setCellValue(this.stageNames.get(i));
+			row.createCell(colIndex++).setCellValue(this.wallTimes.get(i));
+			row.createCell(colIndex++).setCellValue(this.allocatedBytes.get(i));
+			row.createCell(colIndex++).setCellValue(this.peakHeaps.get(i));
+		}
+
+		return rowIndex;
+	}
+}
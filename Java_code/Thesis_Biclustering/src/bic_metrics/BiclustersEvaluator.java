@@ -1,16 +1,15 @@
 package bic_metrics;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
@@ -20,6 +19,7 @@ import org.apache.commons.math3.util.Pair;
 import domain.Bicluster;
 import domain.Biclusters;
 import domain.Dataset;
+import utils.ReportWriter;
 import utils.Utils;
 
 /** @author Joana Matos
@@ -37,91 +37,85 @@ public class BiclustersEvaluator {
 	private String csvDatasetFilePath;
 	//target class name
 	private String targetClassName;
-	//map to get lists of values per column
-	private Map<String, List<String>> datasetColumnValuesMap;
+	//name of the subject id column of the csv dataset file
+	public static final String SUBJECT_ID_COLUMN_NAME = "Subject ID";
+	//dictionary-encoded subject id and target class columns of the csv dataset file
+	private CsvColumnStore datasetColumnStore;
 	//pointer to the set of Biclusters
 	private Biclusters biclusters;
-	//pij = probability that a member of bicluster i (row) belongs to class j (column)
-	private Double[][] probabilityMatrix;
+	//pij = probability that a member of bicluster i (row) belongs to class j (column), 
+	//stored row by row: pij is in position i * numberUniqueCategoriesTarget + j
+	private double[] probabilityMatrix;
 	//probability matrix sizes
 	private int numberBiclusters; 				//rows
 	private int numberUniqueCategoriesTarget; 	//columns
 	//probability matrix target class values for each column (j)
 	private Set<String> targetClassValues;
+	//same target class values by column index (j), and column index of each target class value
+	private String[] targetClassValuesByIndex;
+	private Map<String, Integer> targetClassIndexes;
+	//mij = number of objects of class j in bicluster i (same sizes as the probability matrix)
+	private int[][] countMatrix;
+	//mi = number of objects in bicluster i
+	private int[] biclusterSizes;
+	//mj = number of objects of class j in the dataset
+	private int[] classTotals;
+	//m = total number of data points in all biclusters
+	private int totalNumberDataPoints;
+	
+	//file formats of the classifier matrix (subject x bicluster membership plus target class);
+	//the sparse formats only write the memberships (1 values)
+	public static enum ClassifierMatrixFormat
+	{
+		CSV, SparseARFF, LibSVM, MatrixMarket;
+		
+		private ClassifierMatrixFormat() {}
+	}
 
-	/**CONSTRUCTOR*/
+	/**CONSTRUCTORS*/
 	public BiclustersEvaluator(String csvDatasetFilePath, Biclusters bics, String targetClassName) throws Exception {
 
-		this.csvDatasetFilePath = csvDatasetFilePath;
+		//load only the columns needed for the evaluation 
+		this(new CsvColumnStore(csvDatasetFilePath, SUBJECT_ID_COLUMN_NAME, targetClassName), bics, targetClassName);
+	}
+	
+	//datasetColumnStore -> csv dataset already loaded (e.g. once for a whole experiment set), with the subject id and target class columns
+	public BiclustersEvaluator(CsvColumnStore datasetColumnStore, Biclusters bics, String targetClassName) throws Exception {
+
+		this.csvDatasetFilePath = datasetColumnStore.getCsvFilePath();
 		this.targetClassName = targetClassName;
-		//fill dataset map 
-		this.datasetColumnValuesMap = createDatasetColumnValuesMap(this.csvDatasetFilePath);
+		this.datasetColumnStore = datasetColumnStore;
 		//set calculations in motion
 		setBiclusters(bics, this.targetClassName);
 	}
 	
 	/**GETTERS*/
-	public Map<String, List<String>> getDatasetColumnValuesMap() {
-		return datasetColumnValuesMap;
+	public CsvColumnStore getDatasetColumnStore() {
+		return datasetColumnStore;
 	}
 	
-	public Double[][] getProbabilityMatrix() {
+	public double[] getProbabilityMatrix() {
 		return probabilityMatrix;
 	}
 	
+	public int getNumberUniqueCategoriesTarget() {
+		return numberUniqueCategoriesTarget;
+	}
+	
 	public Set<String> getTargetClassValues() {
 		return targetClassValues;
 	}
 
-	/**DATA INITIALIZATION*/
-	private Map<String, List<String>> createDatasetColumnValuesMap(String csvDatasetFilePath) throws Exception {
-
-		FileReader in = new FileReader(csvDatasetFilePath);
-		BufferedReader br = new BufferedReader(in);
-
-		Map<String, List<String>> map = new TreeMap<String, List<String>>();
-
-		//read column line (first line)
-		String columnLine = br.readLine();
-		String[] columnNames = columnLine.split(",");
-
-		//read data lines
-		String line;
-		while ((line = br.readLine()) != null) {			 		
-			//split each line by commas
-			String[] lineParts = line.split(",");
-			//go through all columns by each row
-			for(int i = 0; i < columnNames.length; i++) {
-				String currentColumn = columnNames[i];
-
-				//value list pointer for column values
-				List<String> valueList;
-				//if current column still does not have a value list, create one
-				if(!map.containsKey(currentColumn)) {
-					valueList = new ArrayList<String>();
-				}
-				//if value list exists, get it
-				else {
-					valueList = map.get(currentColumn);
-				}			 
-				//add column value to the list
-				//account for missing values in csv lines as a class "?"
-				String value = lineParts[i].equals("") ? "?" : lineParts[i];				
-				valueList.add(value);
-				//save the list on the map
-				map.put(currentColumn, valueList);
-			}			 
-		}
-		in.close();
-
-		return map;
-	}
-
 	/**PROBABILITY CALCULATIONS*/	
 	//calculate probabilities for a set of Biclusters for a given target class;
 	//left targetClassName as parameter so this allows the change of target class for 
 	//the same Biclustering solution
-	public void setBiclusters(Biclusters biclusters, String targetClassName) {
+	public void setBiclusters(Biclusters biclusters, String targetClassName) throws Exception {
+		
+		//load the target class column if it was not loaded yet
+		if(!this.datasetColumnStore.hasColumn(targetClassName)) {
+			this.datasetColumnStore = new CsvColumnStore(this.csvDatasetFilePath, SUBJECT_ID_COLUMN_NAME, targetClassName);
+		}
 		
 		this.biclusters = biclusters;
 		calculateClassProbabilities(targetClassName);
@@ -134,12 +128,28 @@ public class BiclustersEvaluator {
 		boolean debug = false;
 		StringBuffer categories = new StringBuffer();
 		
-		//get list of values for target class column
-		List<String> valueList = this.datasetColumnValuesMap.get(targetClassName);		
-		//get unique values for target class 
-		Set<String> uniqueValues = new TreeSet<String>(valueList);		
+		//get distinct values for target class column
+		List<String> dictionary = this.datasetColumnStore.getDictionary(targetClassName);		
+		//get unique values for target class (sorted)
+		Set<String> uniqueValues = new TreeSet<String>(dictionary);		
 		//save them for later
 		this.targetClassValues = uniqueValues;
+		this.targetClassValuesByIndex = uniqueValues.toArray(new String[uniqueValues.size()]);
+		this.targetClassIndexes = new HashMap<String, Integer>();
+		for(int j = 0; j < this.targetClassValuesByIndex.length; j++) {
+			this.targetClassIndexes.put(this.targetClassValuesByIndex[j], j);
+		}
+		
+		//class index of each row of the dataset (read once, instead of once per bicluster and class)
+		int[] codes = this.datasetColumnStore.getCodes(targetClassName);
+		int[] codeClassIndexes = new int[dictionary.size()];
+		for(int code = 0; code < codeClassIndexes.length; code++) {
+			codeClassIndexes[code] = this.targetClassIndexes.get(dictionary.get(code));
+		}
+		int[] rowClassIndexes = new int[codes.length];
+		for(int row = 0; row < rowClassIndexes.length; row++) {
+			rowClassIndexes[row] = codeClassIndexes[codes[row]];
+		}
 				
 		//init double matrix
 		int numberBiclusters = this.biclusters.size(); 			//number of biclusters
@@ -148,59 +158,58 @@ public class BiclustersEvaluator {
 		this.numberBiclusters = numberBiclusters; 							//rows
 		this.numberUniqueCategoriesTarget = numberUniqueCategoriesTarget; 	//columns
 		
-		Double[][] probMatrix = new Double[numberBiclusters][numberUniqueCategoriesTarget];
+		double[] probMatrix = new double[numberBiclusters * numberUniqueCategoriesTarget];
 		
 		//mij = number of objects of class j in bicluster i
 		//mi  = number of objects in bicluster i
+		//mj  = number of objects of class j in the dataset
 		//pij = probability that a member of bicluster i (row) belongs to class j (column)
 		//pij = mij / mi 
 		
+		int[][] counts = new int[numberBiclusters][numberUniqueCategoriesTarget];
+		int[] sizes = new int[numberBiclusters];
+		int[] totals = new int[numberUniqueCategoriesTarget];
+		int totalPoints = 0;
+		
+		for(int row = 0; row < rowClassIndexes.length; row++) {
+			totals[rowClassIndexes[row]]++;
+		}
+		
 		for (int i = 0; i < numberBiclusters; i++) {
 			
 			Bicluster currentBicluster = this.biclusters.get(i); 			
-			Map<String, Integer> currentCategoryClassCount = getCategoryClassCount(currentBicluster, targetClassName);
 			
-			int j = 0;
-			Iterator<String> it = uniqueValues.iterator();
+			//count the objects of each class in the bicluster (single pass over its rows)
+			for (Integer row : currentBicluster.rows) {
+				counts[i][rowClassIndexes[row]]++;
+			}
+			sizes[i] = currentBicluster.numRows();
+			totalPoints += sizes[i];
 			
-			while(it.hasNext()) {			
-				String currentCategory = it.next();
+			for(int j = 0; j < numberUniqueCategoriesTarget; j++) {
 				
-				//DEBUG
-				if(debug) {
-					if(i == 0) {
-						categories.append(currentCategory + "\t");
-					}
-				}	
-			
-				double probability_ij;
-				//if category exists in bicluster, calculate its probability
-				if(currentCategoryClassCount.containsKey(currentCategory)) {									
-					//mij
-					double countCurrentCategoryOnCurrentBicluster = currentCategoryClassCount.get(currentCategory);
-					//mi
-					double bicSize = currentBicluster.numRows();
-					//pij = mij / mi 
-					probability_ij = countCurrentCategoryOnCurrentBicluster / bicSize;
-				} 
-				//if not, the probability for the class j in bicluster i is 0
-				else {
-					probability_ij = 0;
-				}
-				
-				//save calculated probability
-				probMatrix[i][j] = probability_ij;	
-				//update counter
-				j++;
+				//if category exists in bicluster, pij = mij / mi; if not, the probability for the class j in bicluster i is 0
+				probMatrix[i * numberUniqueCategoriesTarget + j] = counts[i][j] > 0 ? (double) counts[i][j] / sizes[i] : 0;
 			}
 		}
 		
 		//DEBUG
 		if(debug) {
-			Utils.printProbabilityMatrix(categories.toString(), probMatrix);
+			for(String currentCategory : uniqueValues) {
+				categories.append(currentCategory + "\t");
+			}
+		}
+		
+		//DEBUG
+		if(debug) {
+			Utils.printProbabilityMatrix(categories.toString(), probMatrix, numberUniqueCategoriesTarget);
 		}
 		
 		this.probabilityMatrix = probMatrix;
+		this.countMatrix = counts;
+		this.biclusterSizes = sizes;
+		this.classTotals = totals;
+		this.totalNumberDataPoints = totalPoints;
 	}
 
 	//category class count method for a single Bicluster
@@ -210,7 +219,7 @@ public class BiclustersEvaluator {
 		Map<String, Integer> categoryClassCounter = new HashMap<String, Integer>();
 	
 		//get list of values for target class column
-		List<String> valueList = this.datasetColumnValuesMap.get(targetClassName);
+		List<String> valueList = this.datasetColumnStore.getValues(targetClassName);
 
 		Integer counter;
 		for (Integer row : bic.rows) {		
@@ -238,7 +247,7 @@ public class BiclustersEvaluator {
 		List<String> targetClassValues = new ArrayList<String>(bicluster.numRows());
 		
 		//get list of values for target class column
-		List<String> valueList = this.datasetColumnValuesMap.get(targetClassName);
+		List<String> valueList = this.datasetColumnStore.getValues(targetClassName);
 
 		for (Integer row : bicluster.rows) {		
 			//find category for the current row
@@ -249,7 +258,8 @@ public class BiclustersEvaluator {
 	}
 	
 	/**METRIC CALCULATIONS*/
-	public MetricsExperiment getAllClassMetricCalculations() {
+	//data -> Dataset of the experiment (only used for its number of rows)
+	public MetricsExperiment getAllClassMetricCalculations(Dataset data) {
 		
 		//Calculate entropy and purity for the biclustering solution
 		Double entropyBiclustering = getBiclusteringEntropy(this.targetClassName);
@@ -259,10 +269,12 @@ public class BiclustersEvaluator {
 		List<Double> pValueBiclusters = new ArrayList<Double>();
 		List<Double> entropyBiclusters = new ArrayList<Double>();
 		List<Double> purityBiclusters = new ArrayList<Double>();
+		List<Integer> numberRowsBiclusters = new ArrayList<Integer>();
 				
 		for (int i = 0; i < this.biclusters.size(); i++) {
 				
 			pValueBiclusters.add(this.biclusters.get(i).pvalue);
+			numberRowsBiclusters.add(this.biclusters.get(i).numRows());
 			entropyBiclusters.add(getBiclusterEntropy(i, this.targetClassName));
 			purityBiclusters.add(getBiclusterPurity(i));
 		}
@@ -309,7 +321,9 @@ public class BiclustersEvaluator {
 														  purityBiclusters, 
 														  precisionClassBiclusters, 
 														  recallClassBiclusters, 
-														  fMeasureClassBiclusters);
+														  fMeasureClassBiclusters,
+														  numberRowsBiclusters,
+														  data.rows.size());
 		
 		return metrics;
 	}
@@ -324,7 +338,7 @@ public class BiclustersEvaluator {
 		
 		for(int j = 0; j < this.numberUniqueCategoriesTarget; j++) {	
 			
-			double prob = this.probabilityMatrix[biclusterIndex][j];
+			double prob = this.probabilityMatrix[biclusterIndex * this.numberUniqueCategoriesTarget + j];
 			
 			//failsafe for the case when pij = 0:
 			//pij * log2(pij) parcel should be considered as 0
@@ -341,17 +355,14 @@ public class BiclustersEvaluator {
 	public double getBiclusteringEntropy(String targetClassName) {
 				
 		//m = total number of data points		
-		int totalNumberDataPoints = 0;	
-		for (int i = 0; i < this.numberBiclusters; i++) {			
-			totalNumberDataPoints += this.biclusters.get(i).numRows();
-		}
+		double totalNumberDataPoints = this.totalNumberDataPoints;
 		
 		//calculate biclustering entropy
 		double entropy = 0;
 		
 		for (int i = 0; i < this.numberBiclusters; i++) {
 			//mi = number of objects in bicluster i
-			double bicSize = this.biclusters.get(i).numRows();			
+			double bicSize = this.biclusterSizes[i];			
 			entropy += (bicSize / totalNumberDataPoints) * getBiclusterEntropy(i, targetClassName);
 		}
 		
@@ -368,7 +379,7 @@ public class BiclustersEvaluator {
 		
 		for(int j = 0; j < this.numberUniqueCategoriesTarget; j++) {	
 			
-			double prob = this.probabilityMatrix[biclusterIndex][j];
+			double prob = this.probabilityMatrix[biclusterIndex * this.numberUniqueCategoriesTarget + j];
 			
 			//get maximum probability for all j's
 			if(prob > purity) {
@@ -384,17 +395,14 @@ public class BiclustersEvaluator {
 	public double getBiclusteringPurity() {
 				
 		//m = total number of data points		
-		int totalNumberDataPoints = 0;	
-		for (int i = 0; i < this.numberBiclusters; i++) {			
-			totalNumberDataPoints += this.biclusters.get(i).numRows();
-		}
+		double totalNumberDataPoints = this.totalNumberDataPoints;
 		
 		//calculate biclustering purity
 		double purity = 0;
 		
 		for (int i = 0; i < this.numberBiclusters; i++) {
 			//mi = number of objects in bicluster i
-			double bicSize = this.biclusters.get(i).numRows();			
+			double bicSize = this.biclusterSizes[i];			
 			purity += (bicSize / totalNumberDataPoints) * getBiclusterPurity(i);		
 		}
 		
@@ -406,7 +414,7 @@ public class BiclustersEvaluator {
 	//precision of bicluster i with respect to class j is precision(i,j) = pij
 	public double getBiclusterPrecision(int biclusterIndex, int targetClassIndex) {
 		
-		return this.probabilityMatrix[biclusterIndex][targetClassIndex];
+		return this.probabilityMatrix[biclusterIndex * this.numberUniqueCategoriesTarget + targetClassIndex];
 	}
 	
 	//alternative method that uses target class value instead of index
@@ -430,19 +438,14 @@ public class BiclustersEvaluator {
 	//the number of objects in class j
 	public double getBiclusterRecall(int biclusterIndex, int targetClassIndex) {
 		
-		Bicluster currentBicluster = this.biclusters.get(biclusterIndex);
-		String targetClassValue = getTargetClassValue(targetClassIndex);
-		
-		Map<String, Integer> categoryClassCount = getCategoryClassCount(currentBicluster, this.targetClassName);
-		
 		double recall = 0;
 		
 		//if category exists in bicluster, calculate the recall
-		if(categoryClassCount.containsKey(targetClassValue)) {									
+		if(this.countMatrix[biclusterIndex][targetClassIndex] > 0) {									
 			//mij
-			double countCurrentCategoryOnCurrentBicluster = categoryClassCount.get(targetClassValue);
+			double countCurrentCategoryOnCurrentBicluster = this.countMatrix[biclusterIndex][targetClassIndex];
 			//mj
-			double categoryCount = getDatasetTargetClassCount(targetClassValue);
+			double categoryCount = this.classTotals[targetClassIndex];
 			//recall(i,j) = mij/mj
 			recall = countCurrentCategoryOnCurrentBicluster / categoryCount;
 		} 
@@ -504,21 +507,10 @@ public class BiclustersEvaluator {
 	/**UTILITY METHODS*/
 	private int getTargetClassIndex(String targetClassValue) {
 		
-		int targetClassIndex = -1;
-		
 		//find the index of the given target class value on the unique target class values set
-		Iterator<String> it = this.targetClassValues.iterator();
-		
-		int j = 0;
-		while(it.hasNext()) {			
-			String tempClassValue = it.next();
-			if(tempClassValue.equals(targetClassValue)) {
-				targetClassIndex = j;
-			}
-			j++;
-		}
+		Integer targetClassIndex = this.targetClassIndexes.get(targetClassValue);
 		
-		return targetClassIndex;
+		return targetClassIndex == null ? -1 : targetClassIndex;
 	}
 	
 	private String getTargetClassValue(int targetClassIndex) throws IndexOutOfBoundsException {
@@ -527,124 +519,328 @@ public class BiclustersEvaluator {
 			throw new IndexOutOfBoundsException("BiclustersEvaluator.getTargetClassValue");
 		}
 		
-		String targetClassValue = "";
-		
 		//find the name of the given target class index on the unique target class values set
-		Iterator<String> it = this.targetClassValues.iterator();
+		return this.targetClassValuesByIndex[targetClassIndex];
+	}
+	
+	//method to build a classifier matrix (in CSV format) to feed to a Weka classifier
+	//rows: subject ids; columns: bicluster ids (index + 1); 
+	//elements: 1 if the subject id appears in a given bicluster, 0 otherwise;
+	//last column is target class
+	public String buildClassifierMatrixForCSVFile(Dataset data) throws IOException {
 		
-		int j = 0;
-		while(it.hasNext()) {			
-			String tempClassValue = it.next();
-			if(j == targetClassIndex) {
-				targetClassValue = tempClassValue;
-			}
-			j++;
+		StringWriter writer = new StringWriter();
+		writeClassifierMatrix(data, writer);
+		
+		return writer.toString();
+	}
+	
+	//same classifier matrix, written straight to a CSV file
+	public void writeClassifierMatrixToCSVFile(Dataset data, String csvFilePath) throws IOException {
+		
+		Writer writer = new ReportWriter(csvFilePath);
+		try {
+			writeClassifierMatrix(data, writer);
+		}
+		finally {
+			writer.close();
 		}
+	}
+	
+	//subject x bicluster membership (subjects matched to the Dataset rows by their subject id)
+	public MembershipMatrix getMembershipMatrix(Dataset data) {
 		
-		return targetClassValue;
+		return new MembershipMatrix(this.datasetColumnStore.getValues(SUBJECT_ID_COLUMN_NAME), data.rows, this.biclusters);
 	}
 	
-	private int getDatasetTargetClassCount(String targetClassValue) {
+	//write the classifier matrix in the given format; filePathPrefix -> file path without extension;
+	//returns the paths of the written files (LibSVM and Matrix Market files do not keep the subject ids and class values,
+	//so these are also written on a "_rows.csv" file, one line per matrix row)
+	public List<String> writeClassifierMatrixToFile(Dataset data, String filePathPrefix, ClassifierMatrixFormat format) throws IOException {
 		
-		List<String> datasetTargetClassValues = this.datasetColumnValuesMap.get(this.targetClassName);
+		List<String> filePaths = new ArrayList<String>();
 		
-		int counter = 0;
+		if(format == ClassifierMatrixFormat.CSV) {
+			filePaths.add(filePathPrefix + ".csv");
+			writeClassifierMatrixToCSVFile(data, filePaths.get(0));
+			return filePaths;
+		}
 		
-		for (String value : datasetTargetClassValues) {
-			if(value.equals(targetClassValue)) {
-				counter++;
+		MembershipMatrix membership = getMembershipMatrix(data);
+		
+		if(format == ClassifierMatrixFormat.SparseARFF) {
+			filePaths.add(filePathPrefix + ".arff");
+		}
+		else {
+			filePaths.add(filePathPrefix + (format == ClassifierMatrixFormat.LibSVM ? ".libsvm" : ".mtx"));
+			filePaths.add(filePathPrefix + "_rows.csv");
+		}
+		
+		Writer writer = new ReportWriter(filePaths.get(0));
+		try {
+			if(format == ClassifierMatrixFormat.SparseARFF) {
+				writeSparseArff(membership, writer);
+			}
+			else if(format == ClassifierMatrixFormat.LibSVM) {
+				writeLibSVM(membership, writer);
 			}
+			else {
+				writeMatrixMarket(membership, writer);
+			}
+		}
+		finally {
+			writer.close();
 		}
 		
-		return counter;
+		//subject ids and target class of each matrix row (the sparse ARFF file already has them)
+		if(format != ClassifierMatrixFormat.SparseARFF) {
+			writer = new ReportWriter(filePaths.get(1));
+			try {
+				writeMatrixRows(membership, writer);
+			}
+			finally {
+				writer.close();
+			}
+		}
+		
+		return filePaths;
 	}
 	
-	//method to build a classifier matrix (in CSV format) to feed to a Weka classifier
-	//rows: subject ids; columns: bicluster ids (index + 1); 
-	//elements: 1 if the subject id appears in a given bicluster, 0 otherwise;
-	//last column is target class
-	public String buildClassifierMatrixForCSVFile(Dataset data) {
+	private void writeClassifierMatrix(Dataset data, Writer writer) throws IOException {
 		
-		String subjectIDStr = "Subject ID";
+		String subjectIDStr = SUBJECT_ID_COLUMN_NAME;
 		
 		//get data in a convenient format
-		List<String> subjectIds = datasetColumnValuesMap.get(subjectIDStr);
-		List<String> targetClassValues = datasetColumnValuesMap.get(this.targetClassName);
-
-		/**Map of maps*/
-		//first level key (String) = Bicluster Id (e.g. Bic_01)
-		//second level key (String) = Subject id
-		Map<String, Map<String, Integer>> mapSubjectsInBics = new TreeMap<String, Map<String, Integer>>();
+		List<String> targetClassValues = this.datasetColumnStore.getValues(this.targetClassName);
+		MembershipMatrix membership = getMembershipMatrix(data);
+		int numberBiclusters = membership.getNumberBiclusters();
 		
-		for(int i = 0; i < numberBiclusters; i++) {
+		String separator = ",";
+		String newline = "\n";
+		
+		/**CSV header*/
+		//subject ID column
+		writer.write(subjectIDStr + separator);
+		
+		//bicluster Ids columns (sorted by id)
+		for(int k = 0; k < numberBiclusters; k++) {
+			writer.write(membership.getBiclusterLabel(membership.getBiclusterInLabelOrder(k)) + separator);
+		}
+		
+		//target class name
+		writer.write(this.targetClassName + newline);
+		
+		/**CSV data rows*/		
+		StringBuilder line = new StringBuilder();
+		for(int i = 0; i < membership.getNumberSubjects(); i++) {
 			
-			Bicluster currentBic = this.biclusters.get(i);	
+			line.setLength(0);
 			
-			//initialize inner map for the current bicluster
-			Map<String, Integer> tempMap = new TreeMap<String, Integer>();
+			//subject id for the given row
+			line.append(membership.getSubjectId(i)).append(separator);
 			
-			//get subject Ids present on the current bicluster			
-			List<String> subjectIdsCurrentBic = new LinkedList<String>();
-			for(int rowIdx : currentBic.rows) { 
-				subjectIdsCurrentBic.add(data.rows.get(rowIdx));
+			//1 if the subject id appears in the bicluster, 0 otherwise
+			for(int k = 0; k < numberBiclusters; k++) {
+				line.append(membership.isMember(i, membership.getBiclusterInLabelOrder(k)) ? "1" : "0").append(separator);
 			}
 			
-			//1 if the subject id appears in the current bicluster, 0 otherwise;
-			for(String subjectId : subjectIds) {
-				if(subjectIdsCurrentBic.contains(subjectId)) {
-					tempMap.put(subjectId, 1);
-				}
-				else {
-					tempMap.put(subjectId, 0);
-				}
-			} 
+			//target class value for the current subject id
+			line.append(targetClassValues.get(i)).append(newline);
+			writer.write(line.toString());
+		}
+	}
+		
+	//write the membership matrix, class labels and metrics of each bicluster as NumPy files (see NumpyWriter): 
+	//"<filePathPrefix>_membership.npy" (subjects x biclusters, uint8) and "<filePathPrefix>_arrays.npz" with
+	//subject_ids, classes (class index of each subject), class_values (sorted), bicluster_labels, rows, pvalue,
+	//entropy and purity (one value per bicluster) and precision, recall and fmeasure (biclusters x classes);
+	//returns the paths of the written files
+	public List<String> writeNumpyFiles(Dataset data, String filePathPrefix) throws IOException {
+		
+		List<String> filePaths = new ArrayList<String>();
+		MembershipMatrix membership = getMembershipMatrix(data);
+		
+		int numberSubjects = membership.getNumberSubjects();
+		int numberClasses = this.numberUniqueCategoriesTarget;
+		
+		/**membership matrix*/
+		filePaths.add(filePathPrefix + "_membership.npy");
+		NumpyWriter.writeMembershipMatrix(membership, filePaths.get(0));
+		
+		/**subjects and classes*/
+		NumpyWriter writer = new NumpyWriter();
+		List<String> targetClassValues = this.datasetColumnStore.getValues(this.targetClassName);
+		
+		int[] classes = new int[numberSubjects];
+		List<String> subjectIds = new ArrayList<String>(numberSubjects);
+		for(int i = 0; i < numberSubjects; i++) {
+			classes[i] = getTargetClassIndex(targetClassValues.get(i));
+			subjectIds.add(membership.getSubjectId(i));
+		}
+		
+		List<String> biclusterLabels = new ArrayList<String>(this.numberBiclusters);
+		for(int i = 0; i < this.numberBiclusters; i++) {
+			biclusterLabels.add(membership.getBiclusterLabel(i));
+		}
+		
+		writer.addStringArray("subject_ids", subjectIds);
+		writer.addIntArray("classes", classes);
+		writer.addStringArray("class_values", new ArrayList<String>(this.targetClassValues));
+		writer.addStringArray("bicluster_labels", biclusterLabels);
+		
+		/**metrics*/
+		int[] rows = new int[this.numberBiclusters];
+		double[] pValues = new double[this.numberBiclusters];
+		double[] entropies = new double[this.numberBiclusters];
+		double[] purities = new double[this.numberBiclusters];
+		double[] recalls = new double[this.numberBiclusters * numberClasses];
+		double[] fMeasures = new double[this.numberBiclusters * numberClasses];
+		
+		for(int i = 0; i < this.numberBiclusters; i++) {
+			
+			rows[i] = this.biclusterSizes[i];
+			pValues[i] = this.biclusters.get(i).pvalue;
+			entropies[i] = getBiclusterEntropy(i, this.targetClassName);
+			purities[i] = getBiclusterPurity(i);
 			
-			//put a zero behind the bicluster number if i < 10
-			mapSubjectsInBics.put("Bic_" + (i + 1 < 10 ? "0" : "") + (i + 1), tempMap);
+			for(int j = 0; j < numberClasses; j++) {
+				recalls[i * numberClasses + j] = getBiclusterRecall(i, j);
+				fMeasures[i * numberClasses + j] = getBiclusterFMeasure(i, j);
+			}
 		}
-				
-		/**build string that will compose the csv file*/
-		StringBuilder builder = new StringBuilder();	
 		
-		String separator = ",";
-		String newline = "\n";
+		writer.addIntArray("rows", rows);
+		writer.addDoubleArray("pvalue", pValues);
+		writer.addDoubleArray("entropy", entropies);
+		writer.addDoubleArray("purity", purities);
+		//precision(i,j) = pij
+		writer.addDoubleArray("precision", this.probabilityMatrix, this.numberBiclusters, numberClasses);
+		writer.addDoubleArray("recall", recalls, this.numberBiclusters, numberClasses);
+		writer.addDoubleArray("fmeasure", fMeasures, this.numberBiclusters, numberClasses);
 		
-		/**CSV header*/
-		//subject ID column
-		builder.append(subjectIDStr + separator);
+		filePaths.add(filePathPrefix + "_arrays.npz");
+		writer.writeNpz(filePaths.get(1));
+		
+		return filePaths;
+	}
+	
+	//sparse ARFF: subject id (string), one numeric attribute per bicluster (sorted by id) and the target class (nominal);
+	//each data line only has the subject id, the biclusters where the subject appears and the target class
+	private void writeSparseArff(MembershipMatrix membership, Writer writer) throws IOException {
 		
-		//bicluster Ids columns
-		Set<Entry<String, Map<String, Integer>>> entrySet = mapSubjectsInBics.entrySet();		
-		Iterator<Entry<String, Map<String, Integer>>> it = entrySet.iterator();
+		List<String> targetClassValues = this.datasetColumnStore.getValues(this.targetClassName);
+		int numberBiclusters = membership.getNumberBiclusters();
 		
-		while(it.hasNext()) {
-			builder.append(it.next().getKey() + separator);
+		/**ARFF header*/
+		writer.write("@relation " + quoteArff("classifier_matrix_" + this.targetClassName) + "\n\n");
+		writer.write("@attribute " + quoteArff(SUBJECT_ID_COLUMN_NAME) + " string\n");
+		
+		for(int k = 0; k < numberBiclusters; k++) {
+			writer.write("@attribute " + membership.getBiclusterLabel(membership.getBiclusterInLabelOrder(k)) + " numeric\n");
 		}
 		
-		//target class name
-		builder.append(this.targetClassName + newline);
+		StringBuilder classValues = new StringBuilder();
+		for(String classValue : this.targetClassValues) {
+			classValues.append(classValues.length() > 0 ? "," : "").append(quoteArff(classValue));
+		}
+		writer.write("@attribute " + quoteArff(this.targetClassName) + " {" + classValues + "}\n\n@data\n");
 		
-		/**CSV data rows*/		
-		for(int i = 0; i < subjectIds.size(); i++) {
+		/**ARFF data rows*/
+		StringBuilder line = new StringBuilder();
+		for(int i = 0; i < membership.getNumberSubjects(); i++) {
 			
-			String currentSubjectId = subjectIds.get(i);
+			line.setLength(0);
+			line.append("{0 ").append(quoteArff(membership.getSubjectId(i)));
 			
-			//subject id for the given row
-			builder.append(currentSubjectId + separator);
+			//attribute indexes: 0 = subject id, 1 to K = biclusters, K + 1 = target class
+			for(int k = 0; k < numberBiclusters; k++) {
+				if(membership.isMember(i, membership.getBiclusterInLabelOrder(k))) {
+					line.append(",").append(k + 1).append(" 1");
+				}
+			}
 			
-			//get new iterator over entrySet
-			it = entrySet.iterator();
+			line.append(",").append(numberBiclusters + 1).append(" ").append(quoteArff(targetClassValues.get(i))).append("}\n");
+			writer.write(line.toString());
+		}
+	}
+	
+	//LibSVM: "<class index> <bicluster>:1 ...", with class indexes of the sorted target class values (0, 1, ...)
+	//and bicluster features numbered from 1 (sorted by id)
+	private void writeLibSVM(MembershipMatrix membership, Writer writer) throws IOException {
+		
+		List<String> targetClassValues = this.datasetColumnStore.getValues(this.targetClassName);
+		int numberBiclusters = membership.getNumberBiclusters();
+		
+		StringBuilder line = new StringBuilder();
+		for(int i = 0; i < membership.getNumberSubjects(); i++) {
+			
+			line.setLength(0);
+			line.append(getTargetClassIndex(targetClassValues.get(i)));
 			
-			while(it.hasNext()) {
-				//get value of the subject id presence in the bicluster
-				builder.append(it.next().getValue().get(currentSubjectId) + separator);
+			for(int k = 0; k < numberBiclusters; k++) {
+				if(membership.isMember(i, membership.getBiclusterInLabelOrder(k))) {
+					line.append(" ").append(k + 1).append(":1");
+				}
 			}
 			
-			//target class value for the current subject id
-			builder.append(targetClassValues.get(i) + newline);
+			line.append("\n");
+			writer.write(line.toString());
+		}
+	}
+	
+	//Matrix Market coordinate format (pattern matrix): rows = subjects, columns = biclusters (sorted by id), 
+	//one "row column" line (1-based) per membership
+	private void writeMatrixMarket(MembershipMatrix membership, Writer writer) throws IOException {
+		
+		int numberBiclusters = membership.getNumberBiclusters();
+		
+		long numberEntries = 0;
+		for(int k = 0; k < numberBiclusters; k++) {
+			numberEntries += membership.getMembers(k).cardinality();
+		}
+		
+		writer.write("%%MatrixMarket matrix coordinate pattern general\n");
+		writer.write("% rows: subjects (see _rows.csv file); columns: biclusters");
+		for(int k = 0; k < numberBiclusters; k++) {
+			writer.write(" " + membership.getBiclusterLabel(membership.getBiclusterInLabelOrder(k)));
 		}
+		writer.write("\n");
+		writer.write(membership.getNumberSubjects() + " " + numberBiclusters + " " + numberEntries + "\n");
+		
+		StringBuilder line = new StringBuilder();
+		for(int i = 0; i < membership.getNumberSubjects(); i++) {
+			
+			line.setLength(0);
 			
-		return builder.toString();
+			for(int k = 0; k < numberBiclusters; k++) {
+				if(membership.isMember(i, membership.getBiclusterInLabelOrder(k))) {
+					line.append(i + 1).append(" ").append(k + 1).append("\n");
+				}
+			}
+			
+			writer.write(line.toString());
+		}
+	}
+	
+	//subject id and target class of each row of the LibSVM and Matrix Market files
+	private void writeMatrixRows(MembershipMatrix membership, Writer writer) throws IOException {
+		
+		List<String> targetClassValues = this.datasetColumnStore.getValues(this.targetClassName);
+		
+		writer.write(SUBJECT_ID_COLUMN_NAME + "," + this.targetClassName + "\n");
+		
+		for(int i = 0; i < membership.getNumberSubjects(); i++) {
+			writer.write(membership.getSubjectId(i) + "," + targetClassValues.get(i) + "\n");
+		}
+	}
+	
+	//quote ARFF names and values with spaces or special characters
+	private static String quoteArff(String value) {
+		
+		if(value.isEmpty() || value.matches(".*[\\s,{}%'\"\\\\].*")) {
+			return "'" + value.replace("\\", "\\\\").replace("'", "\\'") + "'";
+		}
+		return value;
 	}
 		
 	/**DEBUG METHODS*/
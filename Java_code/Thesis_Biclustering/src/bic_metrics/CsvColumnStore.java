@@ -0,0 +1,168 @@
+package bic_metrics;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Column store for the CSV dataset file used by the BiclustersEvaluator.
+ *  Only the requested columns are loaded, and each one is dictionary-encoded: one int code per line
+ *  plus the list of distinct values (codes are given by order of first appearance).
+ *  Missing values in csv lines are kept as a class "?". The store is not changed after it is loaded,
+ *  so one store can be shared by all the evaluators of an experiment set, including parallel experiments.
+ */
+
+public class CsvColumnStore {
+
+	//path to the csv dataset file
+	private final String csvFilePath;
+	//number of data lines (rows)
+	private final int numberRows;
+	//codes of each loaded column (one per row)
+	private final Map<String, int[]> columnCodes;
+	//distinct values of each loaded column (value of code k in position k)
+	private final Map<String, List<String>> columnDictionaries;
+
+	/**CONSTRUCTOR*/
+	//columnNames -> columns to load (columns not found on the file are ignored)
+	public CsvColumnStore(String csvFilePath, String... columnNames) throws Exception {
+
+		Map<String, int[]> codes = new HashMap<String, int[]>();
+		Map<String, List<String>> dictionaries = new HashMap<String, List<String>>();
+
+		this.csvFilePath = csvFilePath;
+		this.numberRows = load(Arrays.asList(columnNames), codes, dictionaries);
+		this.columnCodes = Collections.unmodifiableMap(codes);
+		this.columnDictionaries = Collections.unmodifiableMap(dictionaries);
+	}
+
+	/**GETTERS*/
+	public String getCsvFilePath() {
+		return csvFilePath;
+	}
+
+	public int getNumberRows() {
+		return numberRows;
+	}
+
+	public boolean hasColumn(String columnName) {
+		return this.columnCodes.containsKey(columnName);
+	}
+
+	//codes of a column (value of row i is getDictionary(columnName).get(getCodes(columnName)[i])); must not be changed
+	public int[] getCodes(String columnName) {
+		return this.columnCodes.get(columnName);
+	}
+
+	public List<String> getDictionary(String columnName) {
+		return this.columnDictionaries.get(columnName);
+	}
+
+	public String getValue(String columnName, int row) {
+		return this.columnDictionaries.get(columnName).get(this.columnCodes.get(columnName)[row]);
+	}
+
+	//read-only list view of the values of a column (decoded on access)
+	public List<String> getValues(final String columnName) {
+
+		final int[] codes = this.columnCodes.get(columnName);
+		final List<String> dictionary = this.columnDictionaries.get(columnName);
+
+		if(codes == null) {
+			return null;
+		}
+
+		return new AbstractList<String>() {
+
+			@Override
+			public String get(int index) {
+				return dictionary.get(codes[index]);
+			}
+
+			@Override
+			public int size() {
+				return codes.length;
+			}
+		};
+	}
+
+	/**DATA INITIALIZATION*/
+	//fills the codes and dictionaries of the requested columns and returns the number of rows
+	private int load(List<String> columnNames, Map<String, int[]> columnCodes, Map<String, List<String>> columnDictionaries) throws Exception {
+
+		FileReader in = new FileReader(this.csvFilePath);
+		BufferedReader br = new BufferedReader(in);
+
+		//read column line (first line) and find the position of the requested columns
+		String columnLine = br.readLine();
+		String[] fileColumnNames = columnLine.split(",");
+
+		List<String> loadedNames = new ArrayList<String>();
+		List<Integer> loadedPositions = new ArrayList<Integer>();
+
+		for(int i = 0; i < fileColumnNames.length; i++) {
+			if(columnNames.contains(fileColumnNames[i]) && !loadedNames.contains(fileColumnNames[i])) {
+				loadedNames.add(fileColumnNames[i]);
+				loadedPositions.add(i);
+			}
+		}
+
+		int numberLoaded = loadedNames.size();
+
+		//growing code arrays and value -> code maps of the loaded columns
+		int[][] codes = new int[numberLoaded][1024];
+		List<Map<String, Integer>> valueCodes = new ArrayList<Map<String, Integer>>(numberLoaded);
+		List<List<String>> dictionaries = new ArrayList<List<String>>(numberLoaded);
+
+		for(int c = 0; c < numberLoaded; c++) {
+			valueCodes.add(new HashMap<String, Integer>());
+			dictionaries.add(new ArrayList<String>());
+		}
+
+		//read data lines
+		int row = 0;
+		String line;
+		while ((line = br.readLine()) != null) {
+			//split each line by commas (keeping empty values at the end of the line)
+			String[] lineParts = line.split(",", -1);
+
+			for(int c = 0; c < numberLoaded; c++) {
+				int position = loadedPositions.get(c);
+
+				//account for missing values in csv lines as a class "?"
+				String value = (position >= lineParts.length || lineParts[position].equals("")) ? "?" : lineParts[position];
+
+				Integer code = valueCodes.get(c).get(value);
+				//if value still does not have a code, create one
+				if(code == null) {
+					code = dictionaries.get(c).size();
+					valueCodes.get(c).put(value, code);
+					dictionaries.get(c).add(value);
+				}
+
+				if(row == codes[c].length) {
+					codes[c] = Arrays.copyOf(codes[c], codes[c].length * 2);
+				}
+				codes[c][row] = code;
+			}
+			row++;
+		}
+		br.close();
+
+		for(int c = 0; c < numberLoaded; c++) {
+			columnCodes.put(loadedNames.get(c), Arrays.copyOf(codes[c], row));
+			columnDictionaries.put(loadedNames.get(c), Collections.unmodifiableList(dictionaries.get(c)));
+		}
+
+		return row;
+	}
+}
@@ -0,0 +1,119 @@
+package bic_metrics;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import domain.Bicluster;
+import domain.Biclusters;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Subject x Bicluster membership matrix of a Biclustering solution (used for the classifier CSV file).
+ *  Subjects are the lines of the CSV dataset file, matched to the rows of the Dataset by their subject id.
+ *  Each Bicluster keeps one bitset with the subjects (CSV lines) it contains.
+ */
+
+public class MembershipMatrix {
+
+	//subject ids (one per CSV line)
+	private List<String> subjectIds;
+	//one bitset per Bicluster (bit p is set if the subject of CSV line p appears in the Bicluster)
+	private BitSet[] biclusterMembers;
+	//Bicluster labels (index + 1, e.g. Bic_01) and order of the Biclusters sorted by label
+	private String[] biclusterLabels;
+	private int[] labelOrder;
+
+	/**CONSTRUCTOR*/
+	//subjectIds -> subject id of each CSV line; datasetRowNames -> names (subject ids) of the Dataset rows
+	public MembershipMatrix(List<String> subjectIds, List<String> datasetRowNames, Biclusters biclusters) {
+
+		this.subjectIds = subjectIds;
+
+		//hash join: CSV lines of each subject id
+		Map<String, List<Integer>> subjectLines = new HashMap<String, List<Integer>>();
+		for(int p = 0; p < subjectIds.size(); p++) {
+			List<Integer> lines = subjectLines.get(subjectIds.get(p));
+			if(lines == null) {
+				lines = new ArrayList<Integer>(1);
+				subjectLines.put(subjectIds.get(p), lines);
+			}
+			lines.add(p);
+		}
+
+		//CSV lines of each Dataset row (rows without a CSV line are ignored)
+		List<List<Integer>> rowLines = new ArrayList<List<Integer>>(datasetRowNames.size());
+		for(String rowName : datasetRowNames) {
+			List<Integer> lines = subjectLines.get(rowName);
+			rowLines.add(lines == null ? Collections.<Integer>emptyList() : lines);
+		}
+
+		int numberBiclusters = biclusters.size();
+		this.biclusterMembers = new BitSet[numberBiclusters];
+		this.biclusterLabels = new String[numberBiclusters];
+
+		for(int i = 0; i < numberBiclusters; i++) {
+
+			Bicluster currentBic = biclusters.get(i);
+			BitSet members = new BitSet(subjectIds.size());
+
+			for(int rowIdx : currentBic.rows) {
+				for(int line : rowLines.get(rowIdx)) {
+					members.set(line);
+				}
+			}
+
+			this.biclusterMembers[i] = members;
+			//put a zero behind the bicluster number if i < 10
+			this.biclusterLabels[i] = "Bic_" + (i + 1 < 10 ? "0" : "") + (i + 1);
+		}
+
+		//Biclusters are written sorted by label (e.g. Bic_10 before Bic_100 before Bic_11)
+		List<Integer> order = new ArrayList<Integer>(numberBiclusters);
+		for(int i = 0; i < numberBiclusters; i++) {
+			order.add(i);
+		}
+		Collections.sort(order, (a, b) -> this.biclusterLabels[a].compareTo(this.biclusterLabels[b]));
+
+		this.labelOrder = new int[numberBiclusters];
+		for(int k = 0; k < numberBiclusters; k++) {
+			this.labelOrder[k] = order.get(k);
+		}
+	}
+
+	/**GETTERS*/
+	public int getNumberSubjects() {
+		return subjectIds.size();
+	}
+
+	public int getNumberBiclusters() {
+		return biclusterMembers.length;
+	}
+
+	public String getSubjectId(int subject) {
+		return subjectIds.get(subject);
+	}
+
+	public String getBiclusterLabel(int bicluster) {
+		return biclusterLabels[bicluster];
+	}
+
+	//index of the k-th Bicluster sorted by label
+	public int getBiclusterInLabelOrder(int k) {
+		return labelOrder[k];
+	}
+
+	//subjects (CSV lines) of a Bicluster (must not be changed)
+	public BitSet getMembers(int bicluster) {
+		return biclusterMembers[bicluster];
+	}
+
+	public boolean isMember(int subject, int bicluster) {
+		return biclusterMembers[bicluster].get(subject);
+	}
+}
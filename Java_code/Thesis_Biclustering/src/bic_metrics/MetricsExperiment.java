@@ -1,6 +1,7 @@
 package bic_metrics;
 
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -9,14 +10,10 @@ import java.util.Set;
 import java.util.TreeMap;
 
 import org.apache.commons.math3.util.Pair;
+import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
-import org.apache.poi.ss.usermodel.FillPatternType;
 import org.apache.poi.ss.usermodel.IndexedColors;
-import org.apache.poi.xssf.usermodel.XSSFCell;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFRow;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Row;
 
 import bic_experiment.BicPamsExperiment;
 import bic_translator.BiclustersTranslator;
@@ -40,6 +37,8 @@ public class MetricsExperiment {
 	Map<Integer, List<Pair<String, Double>>> precisionClassBiclusters;
 	Map<Integer, List<Pair<String, Double>>> recallClassBiclusters;
 	Map<Integer, List<Pair<String, Double>>> fMeasureClassBiclusters;
+	private List<Integer> numberRowsBiclusters;	//number of rows of each bicluster
+	private int numberRowsDataset;				//number of rows of the experiment dataset
 	//array with purity levels to calculate the number of biclusters with purity higher than those levels
 	private static Double[] purityLevels = {0.5D, 0.75D, 0.8D, 0.85D, 0.9D, 0.95D, 1D};
 	
@@ -48,7 +47,8 @@ public class MetricsExperiment {
 							 List<Double> pValueBiclusters, List<Double> entropyBiclusters, List<Double> purityBiclusters, 
 							 Map<Integer, List<Pair<String, Double>>> precisionClassBiclusters,
 							 Map<Integer, List<Pair<String, Double>>> recallClassBiclusters,
-							 Map<Integer, List<Pair<String, Double>>> fMeasureClassBiclusters) {
+							 Map<Integer, List<Pair<String, Double>>> fMeasureClassBiclusters,
+							 List<Integer> numberRowsBiclusters, int numberRowsDataset) {
 
 		this.targetClassValues = targetClassValues;
 		this.entropyBiclustering = entropyBiclustering;
@@ -59,6 +59,8 @@ public class MetricsExperiment {
 		this.precisionClassBiclusters = precisionClassBiclusters;
 		this.recallClassBiclusters = recallClassBiclusters;
 		this.fMeasureClassBiclusters = fMeasureClassBiclusters;
+		this.numberRowsBiclusters = numberRowsBiclusters;
+		this.numberRowsDataset = numberRowsDataset;
 	}
 
 	//getters
@@ -98,6 +100,14 @@ public class MetricsExperiment {
 		return fMeasureClassBiclusters;
 	}	
 	
+	public List<Integer> getNumberRowsBiclusters() {
+		return numberRowsBiclusters;
+	}
+	
+	public int getNumberRowsDataset() {
+		return numberRowsDataset;
+	}
+	
 	public Double[] getPurityLevels() {
 		return purityLevels;
 	}
@@ -209,44 +219,35 @@ public class MetricsExperiment {
 	}
 	
 	//write all data to excel file sheet
-	public int writeAllDataToExcelSheet(XSSFSheet sheet, int startingRowIndex, BicPamsExperiment experiment) {
+	public int writeAllDataToExcelSheet(MetricsWorkbook workbook, int sheetIndex, int startingRowIndex, BicPamsExperiment experiment) {
 		
 		int rowIndex = startingRowIndex;
 		int numberClasses = this.targetClassValues.size();
 		
-		//Create font to highlight the start of a given experiment data
-		XSSFFont experimentFont = sheet.getWorkbook().createFont();
-		experimentFont.setFontHeightInPoints((short)14);
-		experimentFont.setBold(true);
-		//set style with that font
-		CellStyle experimentStyle = sheet.getWorkbook().createCellStyle(); 
-		experimentStyle.setFont(experimentFont);
-		
-		//Create style to just set bold text in cells
-		XSSFFont boldFont = sheet.getWorkbook().createFont();
-		boldFont.setBold(true);
-		//Set text in bold
-		CellStyle boldStyle = sheet.getWorkbook().createCellStyle(); 
-		boldStyle.setFont(boldFont);
+		//Style (bigger bold font) to highlight the start of a given experiment data
+		//(styles are created only once per workbook)
+		CellStyle experimentStyle = workbook.getFontStyle(14, true);
+		//Style to just set bold text in cells
+		CellStyle boldStyle = workbook.getFontStyle(0, true);
 		
 		/**first row (experiment id)*/
-		XSSFRow row = sheet.createRow(rowIndex++);
+		Row row = workbook.createRow(sheetIndex, rowIndex++);
 		
-		XSSFCell cell = row.createCell(0);
+		Cell cell = row.createCell(0);
 		cell.setCellValue("Experiment " + experiment.getExperimentId());
 		cell.setCellStyle(experimentStyle);
 		
 		/**second + third rows (experiment data)*/			
 		List<Pair<String,String>> experimentData = experiment.getExperimentInfo();
 		
-		XSSFRow row2 = sheet.createRow(rowIndex++);
+		Row row2 = workbook.createRow(sheetIndex, rowIndex++);
 		
 		int colIndex = 0;
 		for(Pair<String,String> pair : experimentData) {		
 			row2.createCell(colIndex++).setCellValue(pair.getFirst());
 		}	
 		
-		XSSFRow row3 = sheet.createRow(rowIndex++);
+		Row row3 = workbook.createRow(sheetIndex, rowIndex++);
 		
 		colIndex = 0;
 		for(Pair<String,String> pair : experimentData) {
@@ -258,7 +259,7 @@ public class MetricsExperiment {
 		
 		/**fourth row (headers)*/
 		colIndex = 1;
-		XSSFRow row4 = sheet.createRow(rowIndex++);
+		Row row4 = workbook.createRow(sheetIndex, rowIndex++);
 		
 		//Bicluster ID
 		cell = row4.createCell(colIndex++);
@@ -315,7 +316,7 @@ public class MetricsExperiment {
 		
 		/**fifth row (target class categories)*/
 		colIndex = 0;
-		XSSFRow row5 = sheet.createRow(rowIndex++);
+		Row row5 = workbook.createRow(sheetIndex, rowIndex++);
 		
 		row5.createCell(colIndex).setCellValue("Categories ->");
 		//skip the bicluster id, entropy, purity and p-value columns, go to the first precision column
@@ -333,7 +334,7 @@ public class MetricsExperiment {
 		for(int i = 0; i < this.entropyBiclusters.size(); i++) {
 			
 			colIndex = 1;
-			XSSFRow dataRow = sheet.createRow(rowIndex++);
+			Row dataRow = workbook.createRow(sheetIndex, rowIndex++);
 			
 			//bicluster id (bicluster numbers start in 1)
 			dataRow.createCell(colIndex++).setCellValue(i + 1);	
@@ -368,7 +369,7 @@ public class MetricsExperiment {
 		
 		/**biclustering data row*/
 		colIndex = 1;
-		XSSFRow bicsRow = sheet.createRow(rowIndex++);
+		Row bicsRow = workbook.createRow(sheetIndex, rowIndex++);
 		
 		//solution id
 		bicsRow.createCell(colIndex++).setCellValue("Solution");
@@ -384,7 +385,7 @@ public class MetricsExperiment {
 		int numberSigBiclusters = getNumberSignificativeBiclusters(experiment.getSignificanceLevel());
 		
 		colIndex = 1;
-		XSSFRow sigBicsRow = sheet.createRow(rowIndex++);
+		Row sigBicsRow = workbook.createRow(sheetIndex, rowIndex++);
 		//No. Sig. Bics
 		cell = sigBicsRow.createCell(colIndex++);
 		cell.setCellValue("No. Sig. Bics (< " + experiment.getSignificanceLevel() + ")");
@@ -402,7 +403,7 @@ public class MetricsExperiment {
 			Entry<Double, Integer> current = it.next();
 			
 			colIndex = 1;
-			XSSFRow pureRow = sheet.createRow(rowIndex++);
+			Row pureRow = workbook.createRow(sheetIndex, rowIndex++);
 			//No. Pure Bics
 			cell = pureRow.createCell(colIndex++);
 			
@@ -421,60 +422,43 @@ public class MetricsExperiment {
 		return ++rowIndex;
 	}
 	
-	public int writePurityPrecisionDataToExcelSheet(XSSFWorkbook workbook, int startingRowIndex, BicPamsExperiment experiment, BiclustersTranslator translator, TranslationMode mode) {
+	public int writePurityPrecisionDataToExcelSheet(MetricsWorkbook workbook, int startingRowIndex, BicPamsExperiment experiment, BiclustersTranslator translator, TranslationMode mode) {
 		
 		int rowIndex = startingRowIndex;
 		int numberClasses = this.targetClassValues.size();
 		
 		/**Get Experiments sheet*/
-		XSSFSheet sheet = workbook.getSheetAt(0);
-		
-		//Create font to highlight the start of a given experiment data
-		XSSFFont experimentFont = sheet.getWorkbook().createFont();
-		experimentFont.setFontHeightInPoints((short)14);
-		experimentFont.setBold(true);
-		//set style with that font
-		CellStyle experimentStyle = sheet.getWorkbook().createCellStyle(); 
-		experimentStyle.setFont(experimentFont);
-		
-		//Create style to just set bold text in cells
-		XSSFFont boldFont = sheet.getWorkbook().createFont();
-		boldFont.setBold(true);
-		//Set text in bold
-		CellStyle boldStyle = sheet.getWorkbook().createCellStyle(); 
-		boldStyle.setFont(boldFont);
-		
-		//Set green background
-		CellStyle greenBackground = sheet.getWorkbook().createCellStyle(); 
-		greenBackground.setFillForegroundColor(IndexedColors.LIGHT_GREEN.getIndex());
-		greenBackground.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-		
-		CellStyle yellowBackground = sheet.getWorkbook().createCellStyle(); 
-		yellowBackground.setFillForegroundColor(IndexedColors.LIGHT_YELLOW.getIndex());
-		yellowBackground.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-		
-		CellStyle orangeBackground = sheet.getWorkbook().createCellStyle(); 
-		orangeBackground.setFillForegroundColor(IndexedColors.LIGHT_ORANGE.getIndex());
-		orangeBackground.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+		int sheetIndex = 0;
+		
+		//Style (bigger bold font) to highlight the start of a given experiment data
+		//(styles are created only once per workbook)
+		CellStyle experimentStyle = workbook.getFontStyle(14, true);
+		//Style to just set bold text in cells
+		CellStyle boldStyle = workbook.getFontStyle(0, true);
+		
+		//Set green, yellow and orange backgrounds
+		CellStyle greenBackground = workbook.getBackgroundStyle(IndexedColors.LIGHT_GREEN); 
+		CellStyle yellowBackground = workbook.getBackgroundStyle(IndexedColors.LIGHT_YELLOW); 
+		CellStyle orangeBackground = workbook.getBackgroundStyle(IndexedColors.LIGHT_ORANGE); 
 		
 		/**first row (experiment id)*/
-		XSSFRow row = sheet.createRow(rowIndex++);
+		Row row = workbook.createRow(sheetIndex, rowIndex++);
 		
-		XSSFCell cell = row.createCell(0);
+		Cell cell = row.createCell(0);
 		cell.setCellValue("Experiment " + experiment.getExperimentId());
 		cell.setCellStyle(experimentStyle);
 		
 		/**second + third rows (experiment data)*/			
 		List<Pair<String,String>> experimentData = experiment.getExperimentInfo();
 		
-		XSSFRow row2 = sheet.createRow(rowIndex++);
+		Row row2 = workbook.createRow(sheetIndex, rowIndex++);
 		
 		int colIndex = 0;
 		for(Pair<String,String> pair : experimentData) {		
 			row2.createCell(colIndex++).setCellValue(pair.getFirst());
 		}	
 		
-		XSSFRow row3 = sheet.createRow(rowIndex++);
+		Row row3 = workbook.createRow(sheetIndex, rowIndex++);
 		
 		colIndex = 0;
 		for(Pair<String,String> pair : experimentData) {
@@ -486,7 +470,7 @@ public class MetricsExperiment {
 		
 		/**fourth row (headers)*/
 		colIndex = 1;
-		XSSFRow row4 = sheet.createRow(rowIndex++);
+		Row row4 = workbook.createRow(sheetIndex, rowIndex++);
 		
 		//Bicluster ID
 		cell = row4.createCell(colIndex++);
@@ -533,7 +517,7 @@ public class MetricsExperiment {
 
 		/**fifth row (target class categories)*/
 		colIndex = 0;
-		XSSFRow row5 = sheet.createRow(rowIndex++);
+		Row row5 = workbook.createRow(sheetIndex, rowIndex++);
 		
 		row5.createCell(colIndex).setCellValue("Categories ->");
 		//skip the first empty column, bicluster id, entropy, purity, 
@@ -552,7 +536,7 @@ public class MetricsExperiment {
 		for(int i = 0; i < this.entropyBiclusters.size(); i++) {
 			
 			colIndex = 1;
-			XSSFRow dataRow = sheet.createRow(rowIndex++);
+			Row dataRow = workbook.createRow(sheetIndex, rowIndex++);
 			
 			//bicluster id (bicluster numbers start in 1)
 			dataRow.createCell(colIndex++).setCellValue(i + 1);	
@@ -563,9 +547,9 @@ public class MetricsExperiment {
 			//bicluster p-value
 			dataRow.createCell(colIndex++).setCellValue(this.pValueBiclusters.get(i));
 			//bicluster number of rows
-			dataRow.createCell(colIndex++).setCellValue(experiment.getBics().get(i).numRows());
+			dataRow.createCell(colIndex++).setCellValue(this.numberRowsBiclusters.get(i));
 			//bicluster % of dataset rows
-			double percDatasetRows = (double) experiment.getBics().get(i).numRows() / experiment.getData().rows.size();
+			double percDatasetRows = (double) this.numberRowsBiclusters.get(i) / this.numberRowsDataset;
 			dataRow.createCell(colIndex++).setCellValue(Double.valueOf(df.format(percDatasetRows)));
 			
 			//bicluster precision (for all target class values)
@@ -629,7 +613,7 @@ public class MetricsExperiment {
 		
 		/**biclustering data row*/
 		colIndex = 1;
-		XSSFRow bicsRow = sheet.createRow(rowIndex++);
+		Row bicsRow = workbook.createRow(sheetIndex, rowIndex++);
 		
 		//solution id
 		bicsRow.createCell(colIndex++).setCellValue("Solution");
@@ -645,7 +629,7 @@ public class MetricsExperiment {
 		int numberSigBiclusters = getNumberSignificativeBiclusters(experiment.getSignificanceLevel());
 		
 		colIndex = 1;
-		XSSFRow sigBicsRow = sheet.createRow(rowIndex++);
+		Row sigBicsRow = workbook.createRow(sheetIndex, rowIndex++);
 		//No. Sig. Bics
 		cell = sigBicsRow.createCell(colIndex++);
 		cell.setCellValue("No. Sig. Bics (< " + experiment.getSignificanceLevel() + ")");
@@ -663,7 +647,7 @@ public class MetricsExperiment {
 			Entry<Double, Integer> current = it2.next();
 			
 			colIndex = 1;
-			XSSFRow pureRow = sheet.createRow(rowIndex++);
+			Row pureRow = workbook.createRow(sheetIndex, rowIndex++);
 			//No. Pure Bics
 			cell = pureRow.createCell(colIndex++);
 			
@@ -682,17 +666,17 @@ public class MetricsExperiment {
 		return ++rowIndex;
 	}
 	
-	public static int writePurityRowsAvgHeaderToExcelSheet(XSSFWorkbook workbook, int startingRowIndex) {
+	public static int writePurityRowsAvgHeaderToExcelSheet(MetricsWorkbook workbook, int startingRowIndex) {
 		
 		int rowIndex = startingRowIndex;
 	
 		/**Get Calculations sheet*/
-		XSSFSheet sheet2 = workbook.getSheetAt(1);
+		int sheetIndex = 1;
 		
 		//header
 		int colIndex = 0;
 		
-		XSSFRow row = sheet2.createRow(rowIndex++);
+		Row row = workbook.createRow(sheetIndex, rowIndex++);
 		
 		row.createCell(colIndex++).setCellValue("Experiment Id");
 		row.createCell(colIndex++).setCellValue("Stopping Criteria Value");
@@ -721,16 +705,16 @@ public class MetricsExperiment {
 		return rowIndex;
 	}
 	
-	public int writePurityRowsAvgToExcelSheet(XSSFWorkbook workbook, int startingRowIndex, BicPamsExperiment experiment) {
+	public int writePurityRowsAvgToExcelSheet(MetricsWorkbook workbook, int startingRowIndex, BicPamsExperiment experiment) {
 			
 		int rowIndex = startingRowIndex;
 	
 		/**Get Calculations sheet*/
-		XSSFSheet sheet2 = workbook.getSheetAt(1);
+		int sheetIndex = 1;
 
 		//data
 		int colIndex = 0;
-		XSSFRow row = sheet2.createRow(rowIndex++);
+		Row row = workbook.createRow(sheetIndex, rowIndex++);
 		
 		//write experiment id
 		row.createCell(colIndex++).setCellValue(experiment.getExperimentId());
@@ -755,9 +739,9 @@ public class MetricsExperiment {
 		for(int i = 0; i < this.entropyBiclusters.size(); i++) {
 		
 			//bicluster number of rows
-			avgCount += experiment.getBics().get(i).numRows();
+			avgCount += this.numberRowsBiclusters.get(i);
 			//bicluster % of dataset rows
-			double percDatasetRows = (double) experiment.getBics().get(i).numRows() / experiment.getData().rows.size();
+			double percDatasetRows = (double) this.numberRowsBiclusters.get(i) / this.numberRowsDataset;
 			avgPerc += percDatasetRows;
 			
 			//get number of pure biclusters for Patient class
@@ -805,16 +789,16 @@ public class MetricsExperiment {
 	}
 
 	//obtain the ids (index + 1) of purest patient bics of each Experiment and write them on an new sheet
-	public int writePurestBiclustersToExcelSheet(XSSFWorkbook workbook, int startingRowIndex, BicPamsExperiment experiment) {
+	public int writePurestBiclustersToExcelSheet(MetricsWorkbook workbook, int startingRowIndex, BicPamsExperiment experiment) {
 	
 		int rowIndex = startingRowIndex;
 		
 		/**Get PurestBiclusters sheet*/
-		XSSFSheet sheet3 = workbook.getSheetAt(2);
+		int sheetIndex = 2;
 		
 		//start a new row
 		int colIndex = 0;
-		XSSFRow row = sheet3.createRow(rowIndex++);
+		Row row = workbook.createRow(sheetIndex, rowIndex++);
 		
 		//add experiment name on first cell
 		row.createCell(colIndex++).setCellValue(experiment.getExperimentId());
@@ -849,16 +833,16 @@ public class MetricsExperiment {
 	
 	//when too many discriminative biclusters were found (more than the maximum number of XLSX columns) 
 	//write the name of the file on the PurestBiclusters sheet
-	public int writePurestBiclustersFileToExcelSheet(XSSFWorkbook workbook, int startingRowIndex, BicPamsExperiment experiment, String fileName) {
+	public int writePurestBiclustersFileToExcelSheet(MetricsWorkbook workbook, int startingRowIndex, BicPamsExperiment experiment, String fileName) {
 	
 		int rowIndex = startingRowIndex;
 		
 		/**Get PurestBiclusters sheet*/
-		XSSFSheet sheet3 = workbook.getSheetAt(2);
+		int sheetIndex = 2;
 		
 		//start a new row
 		int colIndex = 0;
-		XSSFRow row = sheet3.createRow(rowIndex++);
+		Row row = workbook.createRow(sheetIndex, rowIndex++);
 		
 		//add experiment name on first cell
 		row.createCell(colIndex++).setCellValue(experiment.getExperimentId());
@@ -869,6 +853,28 @@ public class MetricsExperiment {
 		return rowIndex;
 	}
 
+	//indexes of the biclusters with purity and highest class precision equal or greater than the given levels
+	//(with both levels at 0.75, these are the purest biclusters of getPurestBiclusters)
+	public List<Integer> getDiscriminativeBiclusters(double purityLevel, double precisionLevel) {
+		
+		List<Integer> biclusterIndexes = new ArrayList<Integer>();
+		
+		for(int i = 0; i < this.purityBiclusters.size(); i++) {
+			if(this.purityBiclusters.get(i) >= purityLevel) {
+				//get highest class precision
+				double maxPrecision = -1;
+				for(Pair<String, Double> pair : this.precisionClassBiclusters.get(i)) {
+					maxPrecision = Math.max(maxPrecision, pair.getSecond().doubleValue());
+				}
+				if(maxPrecision >= precisionLevel) {
+					biclusterIndexes.add(i);
+				}
+			}
+		}
+		
+		return biclusterIndexes;
+	}
+
 	public Pair<String, Integer> getPurestBiclusters(BicPamsExperiment experiment) {
 		
 		StringBuffer buf = new StringBuffer();
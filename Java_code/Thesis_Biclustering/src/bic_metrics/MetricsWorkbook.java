@@ -0,0 +1,182 @@
+package bic_metrics;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Streaming XLSX workbook for the metrics of an experiment set (Experiments, Calculations, PurestBiclusters and Stages sheets).
+ *  Only the last rows of each sheet (row window) are kept in memory; older rows are flushed to temporary files.
+ *  Rows must be created through this class and in increasing order on each sheet, so that the length of the content
+ *  of each column can be tracked (each row is measured when the next row of its sheet is created) and used to set
+ *  the column widths, instead of autosizing the columns (which needs all rows in memory and AWT font metrics).
+ *  Cell styles are kept in a pool, so that each distinct style is created only once and shared by all experiments and sheets.
+ */
+
+public class MetricsWorkbook {
+
+	//number of rows of each sheet kept in memory
+	public static final int DEFAULT_ROW_WINDOW = 100;
+	//maximum column width in XLSX files (in characters)
+	private static final int MAX_COLUMN_WIDTH = 255;
+
+	private SXSSFWorkbook workbook;
+	//maximum content length (in characters) of each column, per sheet
+	private List<int[]> columnLengths;
+	//last row created on each sheet (not measured yet)
+	private List<Row> lastRows;
+	private DataFormatter formatter;
+	//cell styles created so far, by their font or background
+	private Map<String, CellStyle> cellStyles;
+
+	/**CONSTRUCTORS*/
+	public MetricsWorkbook() {
+		this(DEFAULT_ROW_WINDOW);
+	}
+
+	public MetricsWorkbook(int rowWindow) {
+
+		this.workbook = new SXSSFWorkbook(rowWindow);
+		//temporary files of the flushed rows can be large for big experiment sets
+		this.workbook.setCompressTempFiles(true);
+		this.columnLengths = new ArrayList<int[]>();
+		this.lastRows = new ArrayList<Row>();
+		this.formatter = new DataFormatter();
+		this.cellStyles = new HashMap<String, CellStyle>();
+	}
+
+	/**SHEETS AND ROWS*/
+	public Sheet createSheet(String sheetName) {
+
+		this.columnLengths.add(new int[0]);
+		this.lastRows.add(null);
+		return this.workbook.createSheet(sheetName);
+	}
+
+	public Sheet getSheetAt(int sheetIndex) {
+		return this.workbook.getSheetAt(sheetIndex);
+	}
+
+	//create a row on a sheet (rowIndex must be greater than the index of the last row created on that sheet)
+	public Row createRow(int sheetIndex, int rowIndex) {
+
+		measureLastRow(sheetIndex);
+
+		Row row = this.workbook.getSheetAt(sheetIndex).createRow(rowIndex);
+		this.lastRows.set(sheetIndex, row);
+		return row;
+	}
+
+	/**CELL STYLES*/
+	//style with a font of the given size (in points, 0 for the default size) and weight
+	public CellStyle getFontStyle(int fontHeightInPoints, boolean bold) {
+
+		String key = "font_" + fontHeightInPoints + "_" + bold;
+		CellStyle style = this.cellStyles.get(key);
+
+		if(style == null) {
+			Font font = this.workbook.createFont();
+			if(fontHeightInPoints > 0) {
+				font.setFontHeightInPoints((short) fontHeightInPoints);
+			}
+			font.setBold(bold);
+
+			style = this.workbook.createCellStyle();
+			style.setFont(font);
+			this.cellStyles.put(key, style);
+		}
+
+		return style;
+	}
+
+	//style with a solid background color
+	public CellStyle getBackgroundStyle(IndexedColors color) {
+
+		String key = "background_" + color;
+		CellStyle style = this.cellStyles.get(key);
+
+		if(style == null) {
+			style = this.workbook.createCellStyle();
+			style.setFillForegroundColor(color.getIndex());
+			style.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+			this.cellStyles.put(key, style);
+		}
+
+		return style;
+	}
+
+	/**COLUMN WIDTHS*/
+	private void measureLastRow(int sheetIndex) {
+
+		Row row = this.lastRows.get(sheetIndex);
+		if(row == null) {
+			return;
+		}
+
+		int[] lengths = this.columnLengths.get(sheetIndex);
+		if(row.getLastCellNum() > lengths.length) {
+			lengths = Arrays.copyOf(lengths, row.getLastCellNum());
+			this.columnLengths.set(sheetIndex, lengths);
+		}
+
+		for(int j = 0; j < row.getLastCellNum(); j++) {
+			Cell cell = row.getCell(j);
+			if(cell != null) {
+				lengths[j] = Math.max(lengths[j], this.formatter.formatCellValue(cell).length());
+			}
+		}
+
+		this.lastRows.set(sheetIndex, null);
+	}
+
+	//set the width of each column of a sheet from the length of its content
+	//(only call this method when there is nothing more to write on the sheet)
+	public void setColumnWidths(int sheetIndex) {
+
+		measureLastRow(sheetIndex);
+
+		Sheet sheet = this.workbook.getSheetAt(sheetIndex);
+		int[] lengths = this.columnLengths.get(sheetIndex);
+
+		for(int j = 0; j < lengths.length; j++) {
+			//width in units of 1/256 of a character, plus a margin of 2 characters
+			sheet.setColumnWidth(j, Math.min(lengths[j] + 2, MAX_COLUMN_WIDTH) * 256);
+		}
+	}
+
+	/**OUTPUT*/
+	public void write(String filePath) throws IOException {
+
+		FileOutputStream fileOut = new FileOutputStream(filePath);
+		try {
+			this.workbook.write(fileOut);
+		}
+		finally {
+			fileOut.close();
+		}
+	}
+
+	//close the workbook and delete the temporary files of the flushed rows
+	public void close() throws IOException {
+
+		this.workbook.dispose();
+		this.workbook.close();
+	}
+}
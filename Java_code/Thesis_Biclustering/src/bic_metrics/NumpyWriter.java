@@ -0,0 +1,206 @@
+package bic_metrics;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Writer of NumPy .npy and .npz files (format version 1.0, little-endian, C order), so that Python can load
+ *  the results of an experiment with numpy.load (and memory-map the .npy files) instead of parsing text files.
+ *  Arrays are added by name and written on one .npz file (uncompressed) or on one .npy file each.
+ *  The subject x bicluster membership matrix is streamed to its own .npy file (uint8, one row per subject).
+ */
+
+public class NumpyWriter {
+
+	//.npy magic string and version 1.0
+	private static final byte[] MAGIC = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0};
+	//header length (magic, version, header size, header) is a multiple of this value
+	private static final int HEADER_ALIGNMENT = 64;
+
+	//.npy contents of the added arrays (name -> bytes), in the order they were added
+	private Map<String, byte[]> arrays;
+
+	/**CONSTRUCTOR*/
+	public NumpyWriter() {
+		this.arrays = new LinkedHashMap<String, byte[]>();
+	}
+
+	/**ARRAYS*/
+	//float64 array; shape -> sizes of each dimension (a 1-dimensional array if not given)
+	public void addDoubleArray(String name, double[] values, int... shape) {
+
+		ByteBuffer buffer = createBuffer("<f8", getShape(values.length, shape), values.length * 8);
+		for(double value : values) {
+			buffer.putDouble(value);
+		}
+		this.arrays.put(name, buffer.array());
+	}
+
+	//int32 array
+	public void addIntArray(String name, int[] values, int... shape) {
+
+		ByteBuffer buffer = createBuffer("<i4", getShape(values.length, shape), values.length * 4);
+		for(int value : values) {
+			buffer.putInt(value);
+		}
+		this.arrays.put(name, buffer.array());
+	}
+
+	//unicode string array (numpy <U dtype, UTF-32 with the length of the longest string)
+	public void addStringArray(String name, List<String> values) {
+
+		int maxLength = 1;
+		for(String value : values) {
+			maxLength = Math.max(maxLength, value.codePointCount(0, value.length()));
+		}
+
+		ByteBuffer buffer = createBuffer("<U" + maxLength, new int[] {values.size()}, values.size() * maxLength * 4);
+		for(String value : values) {
+			int length = 0;
+			for(int offset = 0; offset < value.length(); length++) {
+				int codePoint = value.codePointAt(offset);
+				buffer.putInt(codePoint);
+				offset += Character.charCount(codePoint);
+			}
+			//pad with zeros
+			for(; length < maxLength; length++) {
+				buffer.putInt(0);
+			}
+		}
+		this.arrays.put(name, buffer.array());
+	}
+
+	/**OUTPUT FILES*/
+	//one added array on a .npy file
+	public void writeNpy(String name, String filePath) throws IOException {
+
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath));
+		try {
+			out.write(this.arrays.get(name));
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	//all added arrays on a .npz file (one "<name>.npy" entry per array, stored without compression)
+	public void writeNpz(String filePath) throws IOException {
+
+		ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(filePath)));
+		try {
+			for(Map.Entry<String, byte[]> array : this.arrays.entrySet()) {
+				byte[] content = array.getValue();
+
+				CRC32 crc = new CRC32();
+				crc.update(content);
+
+				ZipEntry entry = new ZipEntry(array.getKey() + ".npy");
+				entry.setMethod(ZipEntry.STORED);
+				entry.setSize(content.length);
+				entry.setCompressedSize(content.length);
+				entry.setCrc(crc.getValue());
+
+				zip.putNextEntry(entry);
+				zip.write(content);
+				zip.closeEntry();
+			}
+		}
+		finally {
+			zip.close();
+		}
+	}
+
+	//subject x bicluster membership matrix (uint8, 1 if the subject appears in the bicluster, 0 otherwise),
+	//with the biclusters by index (column i = bicluster i), streamed one subject at a time
+	public static void writeMembershipMatrix(MembershipMatrix membership, String filePath) throws IOException {
+
+		int numberSubjects = membership.getNumberSubjects();
+		int numberBiclusters = membership.getNumberBiclusters();
+
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(filePath));
+		try {
+			out.write(createHeader("|u1", new int[] {numberSubjects, numberBiclusters}));
+
+			byte[] row = new byte[numberBiclusters];
+			for(int i = 0; i < numberSubjects; i++) {
+				for(int k = 0; k < numberBiclusters; k++) {
+					row[k] = (byte) (membership.isMember(i, k) ? 1 : 0);
+				}
+				out.write(row);
+			}
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**UTILITY METHODS*/
+	private static int[] getShape(int numberValues, int[] shape) {
+
+		if(shape.length == 0) {
+			return new int[] {numberValues};
+		}
+
+		long size = 1;
+		for(int dimension : shape) {
+			size *= dimension;
+		}
+		if(size != numberValues) {
+			throw new IllegalArgumentException("NumpyWriter: shape does not match the number of values (" + numberValues + ")");
+		}
+		return shape;
+	}
+
+	//little-endian buffer with the .npy header already written
+	private static ByteBuffer createBuffer(String descr, int[] shape, int dataSize) {
+
+		byte[] header = createHeader(descr, shape);
+
+		ByteBuffer buffer = ByteBuffer.allocate(header.length + dataSize).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(header);
+		return buffer;
+	}
+
+	//magic string, version, header size and header dictionary (padded with spaces and ending with a newline)
+	private static byte[] createHeader(String descr, int[] shape) {
+
+		StringBuilder shapeStr = new StringBuilder("(");
+		for(int d = 0; d < shape.length; d++) {
+			shapeStr.append(d > 0 ? ", " : "").append(shape[d]);
+		}
+		//1-dimensional tuples need a comma, e.g. (5,)
+		shapeStr.append(shape.length == 1 ? ",)" : ")");
+
+		StringBuilder dictionary = new StringBuilder();
+		dictionary.append("{'descr': '" + descr + "', 'fortran_order': False, 'shape': " + shapeStr + ", }");
+
+		int unpaddedLength = MAGIC.length + 2 + dictionary.length() + 1;
+		int padding = (HEADER_ALIGNMENT - unpaddedLength % HEADER_ALIGNMENT) % HEADER_ALIGNMENT;
+		for(int p = 0; p < padding; p++) {
+			dictionary.append(' ');
+		}
+		dictionary.append('\n');
+
+		byte[] dictionaryBytes = dictionary.toString().getBytes(StandardCharsets.US_ASCII);
+
+		ByteBuffer buffer = ByteBuffer.allocate(MAGIC.length + 2 + dictionaryBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put(MAGIC);
+		buffer.putShort((short) dictionaryBytes.length);
+		buffer.put(dictionaryBytes);
+		return buffer.array();
+	}
+}
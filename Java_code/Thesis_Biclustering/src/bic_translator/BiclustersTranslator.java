@@ -5,22 +5,28 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
-import org.apache.commons.math3.util.Pair;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import bic_experiment.BicPamsExperiment;
+import bic_experiment.BiclustersResultFile;
 import bic_metrics.BiclustersEvaluator;
 import domain.Bicluster;
 import domain.Biclusters;
 import domain.Dataset;
 import generator.BicMatrixGenerator.PatternType;
+import utils.ReportWriter;
 import utils.Utils;
 
 /** @author Joana Matos
@@ -42,8 +48,8 @@ public class BiclustersTranslator {
 	
 	private String indexToCategoriesFilePath;
 	private String categoriesToLabelsFilePath;
-	private Map<String, List<Pair<String, String>>> indexToCategoriesMap;
-	private Map<String, List<Pair<String, String>>> categoriesToLabelsMap;
+	//translation tables of each dataset column (index -> category value and category value -> label), read only
+	private Map<String, ColumnTranslation> columnTranslations;
 	private boolean printPatternsOnly;
 	
 	public static enum TranslationMode
@@ -53,15 +59,99 @@ public class BiclustersTranslator {
 		private TranslationMode() {}
 	}
 	
+	//tables of the columns without translations (every value is not found)
+	private static final ColumnTranslation NO_TRANSLATION = new ColumnTranslation("(column without translations)");
+	
+	//translation tables of one dataset column, so that each cell is translated with constant-time lookups
+	private static class ColumnTranslation {
+		
+		private String columnName;
+		//category value of each index (null if the index has no translation)
+		private String[] categoriesByIndex;
+		//category values of keys that are not indexes (empty for BicPAMS translation files)
+		private Map<String, String> categoriesByKey;
+		//label of each category value
+		private Map<String, String> labelsByCategory;
+		
+		private ColumnTranslation(String columnName) {
+			
+			this.columnName = columnName;
+			this.categoriesByIndex = new String[0];
+			this.categoriesByKey = new HashMap<String, String>();
+			this.labelsByCategory = new HashMap<String, String>();
+		}
+		
+		//the first translation found for a key is the one kept
+		private void addCategory(String key, String category) {
+			
+			int index = parseIndex(key);
+			if(index < 0) {
+				this.categoriesByKey.putIfAbsent(key, category);
+				return;
+			}
+			if(index >= this.categoriesByIndex.length) {
+				this.categoriesByIndex = Arrays.copyOf(this.categoriesByIndex, Math.max(index + 1, 2 * this.categoriesByIndex.length));
+			}
+			if(this.categoriesByIndex[index] == null) {
+				this.categoriesByIndex[index] = category;
+			}
+		}
+		
+		private void addLabel(String category, String label) {
+			this.labelsByCategory.putIfAbsent(category, label);
+		}
+		
+		private String getCategory(int index) {
+			
+			if(index >= 0 && index < this.categoriesByIndex.length && this.categoriesByIndex[index] != null) {
+				return this.categoriesByIndex[index];
+			}
+			return getCategory(String.valueOf(index));
+		}
+		
+		private String getCategory(String key) {
+			
+			int index = parseIndex(key);
+			if(index >= 0 && index < this.categoriesByIndex.length && this.categoriesByIndex[index] != null) {
+				return this.categoriesByIndex[index];
+			}
+			String category = this.categoriesByKey.get(key);
+			return category != null ? category : notFound(key, this.columnName);
+		}
+		
+		private String getLabel(String category) {
+			
+			String label = this.labelsByCategory.get(category);
+			return label != null ? label : notFound(category, this.columnName);
+		}
+		
+		//index value of a key (-1 if the key is not a non negative integer)
+		private static int parseIndex(String key) {
+			
+			if(key.isEmpty() || key.length() > 9) {
+				return -1;
+			}
+			for(int c = 0; c < key.length(); c++) {
+				if(!Character.isDigit(key.charAt(c))) {
+					return -1;
+				}
+			}
+			return Integer.parseInt(key);
+		}
+	}
+	
 	//constructor
 	public BiclustersTranslator(String indexToCategoriesFilePath, String categoriesToLabelsFilePath) throws Exception {
 		
 		this.indexToCategoriesFilePath = indexToCategoriesFilePath;
 		this.categoriesToLabelsFilePath = categoriesToLabelsFilePath;
 		
-		//fill BicPAMS translation maps
-		this.indexToCategoriesMap = createIndexToCategoriesMap(this.indexToCategoriesFilePath);	
-		this.categoriesToLabelsMap = createCategoriesToLabelsMap(this.categoriesToLabelsFilePath);	
+		//fill BicPAMS translation tables (all of them are built here and never changed afterwards,
+		//so that they can be read by experiments running on several threads)
+		Map<String, ColumnTranslation> translations = new HashMap<String, ColumnTranslation>();
+		addIndexToCategories(this.indexToCategoriesFilePath, translations);	
+		addCategoriesToLabels(this.categoriesToLabelsFilePath, translations);	
+		this.columnTranslations = Collections.unmodifiableMap(translations);
 		
 		//default value
 		this.printPatternsOnly = false;
@@ -75,14 +165,30 @@ public class BiclustersTranslator {
 		this.printPatternsOnly = printPatternsOnly;
 	}
 
+	//translation tables of a column (the shared empty tables if the column has no translations)
+	private ColumnTranslation getColumnTranslation(String columnName) {
+		
+		ColumnTranslation translation = this.columnTranslations.get(columnName);
+		return translation != null ? translation : NO_TRANSLATION;
+	}
+	
+	//translation tables of a column while the translation files are read (created if they do not exist yet)
+	private static ColumnTranslation getColumnTranslation(Map<String, ColumnTranslation> translations, String columnName) {
+		
+		ColumnTranslation translation = translations.get(columnName);
+		if(translation == null) {
+			translation = new ColumnTranslation(columnName);
+			translations.put(columnName, translation);
+		}
+		return translation;
+	}
+	
 	//index to category value
-	private Map<String, List<Pair<String, String>>> createIndexToCategoriesMap(String translationFilePath) throws Exception {
+	private void addIndexToCategories(String translationFilePath, Map<String, ColumnTranslation> translations) throws Exception {
 		
 		 FileReader in = new FileReader(translationFilePath);
 		 BufferedReader br = new BufferedReader(in);
 		 
-		 Map<String, List<Pair<String, String>>> map = new TreeMap<String, List<Pair<String, String>>>();
-		 
 		 //process the translation indexes and respective categories for each dataset column 
 		 //(a line of the translation file)
 		 String line;
@@ -91,27 +197,20 @@ public class BiclustersTranslator {
 			 String[] lineParts = line.split("\t");
 			 //first part is the columns name
 			 String columnName = lineParts[0].replaceAll("\"", "");
-			 //create list
-			 List<Pair<String, String>> listTranslations = new LinkedList<Pair<String, String>>();
+			 //get column translation tables
+			 ColumnTranslation translation = getColumnTranslation(translations, columnName);
 			 //other existing parts are index to category convertions
 			 for(int i = 1; i < lineParts.length; i++) {
 				 String current = lineParts[i].replaceAll("\"", "");
 				 String[] elementParts = current.split(" -> ");
-				 Pair<String, String> pair = new Pair<String, String>(elementParts[0], elementParts[1]);
-				 listTranslations.add(pair);
+				 translation.addCategory(elementParts[0], elementParts[1]);
 			 }
-			 //save column translation data on map
-			 map.put(columnName, listTranslations);
 		 }
 		 in.close();
-		 
-		 return map;
 	}
 		
 	//category value to label
-	private Map<String, List<Pair<String, String>>> createCategoriesToLabelsMap(String translationFilePath) throws IOException {
-		
-		Map<String, List<Pair<String, String>>> map = new TreeMap<String, List<Pair<String, String>>>();
+	private void addCategoriesToLabels(String translationFilePath, Map<String, ColumnTranslation> translations) throws IOException {
 		
 		//read XLSX file
 		File excelFile = new File(translationFilePath);
@@ -128,13 +227,13 @@ public class BiclustersTranslator {
 	    //iterate through pairs of columns to get the labels that correspond to each category value
 	    for (int i = 0; i < numberColumns; i += 2) {
 	    	
-	    	//create list
-			List<Pair<String, String>> listTranslations = new LinkedList<Pair<String, String>>();
-			
 	    	//get feature name for map
 	    	String featureName = sheet.getRow(0).getCell(i).getStringCellValue();
 	    	//System.out.println(featureName);
 	    	
+	    	//get column translation tables
+	    	ColumnTranslation translation = getColumnTranslation(translations, featureName);
+	    	
 	    	//iterate through both columns to get labels (index i) and category values (index i + 1)
 	    	int j = 1;
 	    	while(sheet.getRow(j) != null && sheet.getRow(j).getCell(i) != null) {
@@ -142,31 +241,22 @@ public class BiclustersTranslator {
 	    		String label = sheet.getRow(j).getCell(i).getStringCellValue();
 	    		String categoryValue = sheet.getRow(j).getCell(i + 1).getStringCellValue();
 	    		
-	    		Pair<String, String> pair = new Pair<String, String>(categoryValue, label);
-	    		listTranslations.add(pair);
+	    		translation.addLabel(categoryValue, label);
 	    		j++;
 	    	}
 	    	
 	    	//add NA case to each feature
-	    	Pair<String, String> notApplicable = new Pair<String, String>("NA", "Not Applicable");
-    		listTranslations.add(notApplicable);
-	    	
-	    	//save column translation data on map
-			map.put(featureName, listTranslations);
+	    	translation.addLabel("NA", "Not Applicable");
 		}
 	    
 	    //close workbook when done
 	    workbook.close();
-		
-	    //System.out.println(map);
-	    
-		return map;
 	}
 	
 	//common methods
 	/**
 	 * method translate
-	 * @param mode -> here it should only be TranslationMode.ToCategories or TranslationMode.ToLabels
+	 * @param mode -> TranslationMode.ToCategories, TranslationMode.ToLabels or TranslationMode.Both (both files in a single pass)
 	 * @param bics
 	 * @param experiment
 	 * @param outputFolder
@@ -174,97 +264,196 @@ public class BiclustersTranslator {
 	 * 
 	 */
 	public void translate(TranslationMode mode, Biclusters bics, BicPamsExperiment experiment, String outputFolder) throws Exception {
+		translate(mode, bics, null, experiment, outputFolder);
+	}
+	
+	/**
+	 * method translate (only some of the biclusters)
+	 * @param mode
+	 * @param bics
+	 * @param biclusterIndexes -> indexes of the biclusters to translate (null to translate all biclusters);
+	 * 							  the others can still be translated on demand with translateBicluster
+	 * @param experiment
+	 * @param outputFolder
+	 * @throws Exception
+	 * 
+	 */
+	public void translate(TranslationMode mode, Biclusters bics, List<Integer> biclusterIndexes, BicPamsExperiment experiment, String outputFolder) throws Exception {
 		
 		//create new file with the translated biclusters
-		StringBuffer header = new StringBuffer();	
+		StringBuilder header = new StringBuilder();	
 		header.append("EXPERIENCE PARAMETERS:\n" + experiment.toString() + "\n");			
 		header.append("DATASET:\n" + experiment.getData().getStatistics() + "\n");
 		
 		header.append("\nINDIVIDUAL BICLUSTERS:\n");
-				
-		//output to a concrete location
-		if(mode != TranslationMode.Both) {
-			
-			StringBuffer completeFilepath = new StringBuffer();	
-			completeFilepath.append(outputFolder + "/" + experiment.getExperimentId());
+		
+		//output to a concrete location (both types of translation are done in a single pass over the biclusters)
+		Writer categoriesOut = null;
+		Writer labelsOut = null;
+		
+		try {
+			if(mode != TranslationMode.ToLabels) {
+				categoriesOut = new ReportWriter(getCategoriesFilePath(outputFolder, experiment));
+				categoriesOut.write(header.toString());
+			}
+			if(mode != TranslationMode.ToCategories) {
+				labelsOut = new ReportWriter(getLabelsFilePath(outputFolder, experiment));
+				labelsOut.write(header.toString());
+			}
 			
-			if(mode == TranslationMode.ToCategories) {
-				completeFilepath.append("_translated_categories.txt");
+			List<Bicluster> biclusters = bics.getBiclusters();
+			if(biclusterIndexes == null) {
+				for(int i = 0; i < biclusters.size(); i++) {
+					translateBicluster(biclusters.get(i), i, experiment, categoriesOut, labelsOut);
+				}
 			}
 			else {
-				completeFilepath.append("_translated_labels.txt");
+				for(int i : biclusterIndexes) {
+					translateBicluster(biclusters.get(i), i, experiment, categoriesOut, labelsOut);
+				}
+			}
+		}
+		finally {
+			if(categoriesOut != null) {
+				categoriesOut.close();
+			}
+			if(labelsOut != null) {
+				labelsOut.close();
 			}
-			
-			header.append(translateBiclusters(mode, bics, experiment));
-			Utils.writeFile(completeFilepath.toString(), header.toString());
-		} 
-		//both types of translation
-		else {
-			//toCategories
-			String completeFilepath = outputFolder + "/" + experiment.getExperimentId() + "_translated_categories.txt";						
-			String allText = header.toString() + translateBiclusters(TranslationMode.ToCategories, bics, experiment);
-			Utils.writeFile(completeFilepath.toString(), allText);
-			
-			//toLabels
-			completeFilepath = outputFolder + "/" + experiment.getExperimentId() + "_translated_labels.txt";						
-			allText = header.toString() + translateBiclusters(TranslationMode.ToLabels, bics, experiment);
-			Utils.writeFile(completeFilepath.toString(), allText);
 		}
+		
+		//binary result file with the translation tables of each column
+		writeResultFile(bics, experiment, getResultFilePath(outputFolder, experiment));
+	}
+	
+	//paths of the translated files of an experiment (text files are gzip-compressed when the output file of the experiment is)
+	public static String getCategoriesFilePath(String outputFolder, BicPamsExperiment experiment) {
+		return outputFolder + "/" + experiment.getExperimentId() + "_translated_categories" + getTextFileExtension(experiment);
 	}
 	
-	private String translateBiclusters(TranslationMode mode, Biclusters bics, BicPamsExperiment experiment) {
+	public static String getLabelsFilePath(String outputFolder, BicPamsExperiment experiment) {
+		return outputFolder + "/" + experiment.getExperimentId() + "_translated_labels" + getTextFileExtension(experiment);
+	}
+	
+	public static String getResultFilePath(String outputFolder, BicPamsExperiment experiment) {
+		return outputFolder + "/" + experiment.getExperimentId() + "_translated.bics";
+	}
+	
+	private static String getTextFileExtension(BicPamsExperiment experiment) {
+		return ReportWriter.isCompressed(experiment.getOutputFilename()) ? ".txt" + ReportWriter.GZIP_EXTENSION : ".txt";
+	}
+	
+	//binary result file of the biclusters, with the category value and label of each index of each column
+	private void writeResultFile(Biclusters bics, BicPamsExperiment experiment, String filePath) throws IOException {
 		
-		StringBuffer toPrint = new StringBuffer();	
-
-		int i = 1;
-		for(Bicluster bic : bics.getBiclusters()) {
-			toPrint.append("\nBICLUSTER #" + i++ + ":\n");
-			toPrint.append("p-value = " + bic.pvalue + "\n");	
-			toPrint.append("area = " + bic.area() + "\n\n");	
+		Dataset data = experiment.getData();
+		List<String> columnNames = experiment.getScalability() ? data.originalColumns : data.columns;
+		
+		List<String[]> categories = new ArrayList<String[]>(columnNames.size());
+		List<String[]> labels = new ArrayList<String[]>(columnNames.size());
+		
+		for(ColumnTranslation translation : getColumnTranslations(columnNames)) {
+			String[] columnCategories = translation.categoriesByIndex.clone();
+			String[] columnLabels = new String[columnCategories.length];
+			for(int index = 0; index < columnCategories.length; index++) {
+				if(columnCategories[index] != null) {
+					columnLabels[index] = translation.labelsByCategory.get(columnCategories[index]);
+				}
+			}
+			categories.add(columnCategories);
+			labels.add(columnLabels);
+		}
+		
+		BiclustersResultFile.write(filePath, bics, data, experiment.getScalability(), categories, labels);
+	}
+	
+	//on demand translation of one bicluster (e.g. one that was not translated by translate), 
+	//as it is written on the translated categories (ToCategories) or labels (ToLabels) file
+	public String translateBicluster(TranslationMode mode, Biclusters bics, int biclusterIndex, BicPamsExperiment experiment) throws IOException {
+		
+		StringWriter out = new StringWriter();
+		translateBicluster(bics.getBiclusters().get(biclusterIndex), biclusterIndex, experiment, 
+				mode != TranslationMode.ToLabels ? out : null, mode == TranslationMode.ToLabels ? out : null);
+		return out.toString();
+	}
+	
+	//translate a bicluster to category values and/or labels at the same time (null writers are skipped),
+	//so that the matrix of the bicluster is only built and read once
+	private void translateBicluster(Bicluster bic, int biclusterIndex, BicPamsExperiment experiment, Writer categoriesOut, Writer labelsOut) throws IOException {
+		
+		StringBuilder common = new StringBuilder();
+		//only the translations of the requested modes are built (null otherwise)
+		StringBuilder categories = categoriesOut != null ? new StringBuilder() : null;
+		StringBuilder labels = labelsOut != null ? new StringBuilder() : null;
+		
+		common.append("\nBICLUSTER #" + (biclusterIndex + 1) + ":\n");
+		common.append("p-value = " + bic.pvalue + "\n");	
+		common.append("area = " + bic.area() + "\n\n");	
+		
+		if(experiment.getPrintPatternsOnly() && experiment.getPatternType() == PatternType.Constant) {
+			//print columns and row pattern
+			Dataset data = experiment.getData();
+			
+			common.append("pattern: \n");
 			
-			if(experiment.getPrintPatternsOnly()) {
-				//print columns and row pattern
-				Dataset data = experiment.getData();
-				
-				if(experiment.getPatternType() == PatternType.Constant) {	
-					toPrint.append("pattern: \n");
-					
-					List<String> bicColumnNames = new LinkedList<String>();
+			List<String> bicColumnNames = new LinkedList<String>();
 
-					//get column names
-					for(int idx : bic.columns) {
-						if(experiment.getScalability()) {
-							bicColumnNames.add(data.originalColumns.get(idx));
-							toPrint.append(data.originalColumns.get(idx) + "\t");
-						}
-						else {
-							bicColumnNames.add(data.columns.get(idx));
-							toPrint.append(data.columns.get(idx) + "\t");
-						}
-					} 
-					toPrint.append("\n");	
-					
-					int[] matrixFirstLine = data.getBicluster(bic.columns,bic.rows)[0]; 
-					for(int j = 0; j < matrixFirstLine.length; j++) {
-						toPrint.append(getTranslatedValue(mode, bicColumnNames.get(j), String.valueOf(matrixFirstLine[j])) + "\t");
-					}
-					toPrint.append("\n");			
+			//get column names
+			for(int idx : bic.columns) {
+				if(experiment.getScalability()) {
+					bicColumnNames.add(data.originalColumns.get(idx));
+					common.append(data.originalColumns.get(idx) + "\t");
 				}
-				//failsafe in the case PatternType is not Constant
 				else {
-					toPrint.append(toStringTranslated(mode, experiment.getData(), bic, experiment.getScalability()) + "\n");
-				}			
-			}
-			else {
-				toPrint.append(toStringTranslated(mode, experiment.getData(), bic, experiment.getScalability()) + "\n");
+					bicColumnNames.add(data.columns.get(idx));
+					common.append(data.columns.get(idx) + "\t");
+				}
+			} 
+			common.append("\n");	
+			
+			ColumnTranslation[] translations = getColumnTranslations(bicColumnNames);
+			int[] matrixFirstLine = Utils.getConstantPattern(data, bic); 
+			for(int j = 0; j < matrixFirstLine.length; j++) {
+				String category = translations[j].getCategory(matrixFirstLine[j]);
+				if(categories != null) {
+					categories.append(category + "\t");
+				}
+				if(labels != null) {
+					labels.append(translations[j].getLabel(category) + "\t");
+				}
 			}
+			appendLine(categories, labels);
+		}
+		//whole bicluster (also the failsafe in the case PatternType is not Constant)
+		else {
+			appendTranslated(experiment.getData(), bic, experiment.getScalability(), common, categories, labels);
+			appendLine(categories, labels);
+		}
+		
+		if(categoriesOut != null) {
+			categoriesOut.write(common.toString());
+			categoriesOut.write(categories.toString());
 		}
+		if(labelsOut != null) {
+			labelsOut.write(common.toString());
+			labelsOut.write(labels.toString());
+		}
+	}
 		
-		return toPrint.toString();
+	//end the line of the translations being built
+	private static void appendLine(StringBuilder categories, StringBuilder labels) {
+		
+		if(categories != null) {
+			categories.append("\n");
+		}
+		if(labels != null) {
+			labels.append("\n");
+		}
 	}
 		
-	//adapted from Bicluster.toString(Dataset)
-	private String toStringTranslated(TranslationMode mode, Dataset data, Bicluster bic, boolean scalability) {
+	//adapted from Bicluster.toString(Dataset); the part without translations is appended to common,
+	//the translated rows are appended to categories (category values) and labels (null to skip a translation)
+	private void appendTranslated(Dataset data, Bicluster bic, boolean scalability, StringBuilder common, StringBuilder categories, StringBuilder labels) {
 		
 		//build string part with the columns and rows that compose the bicluster
 		StringBuffer res = new StringBuffer(bic.key != null ? "ID:" + bic.key : "");
@@ -289,37 +478,42 @@ public class BiclustersTranslator {
 		}
 		res.append("] X=[");
 		
-		//System.out.println(columns);
+		//translation tables of each column (resolved once per column)
+		ColumnTranslation[] translations = getColumnTranslations(columns);
 
 		int j;
 		for (Iterator<Integer> it = bic.rows.iterator(); it.hasNext(); res.append((String)data.rows.get(j) + ",")) {
 			j = ((Integer)it.next()).intValue();
 		}
 		res.append("]");
+		common.append(res.toString().replace(",]", "]"));
 
-		//translate the indexes that compose the bicluster
+		//translate the indexes that compose the bicluster (both translations at the same time)
 		int[][] matrix = data.getBicluster(bic.columns, bic.rows);
 		int k = 0;
 		for (Iterator<Integer> it = bic.rows.iterator(); it.hasNext();)
 		{
 			int x = ((Integer)it.next()).intValue();
-			res.append("\n");
-			res.append((String)data.rows.get(x) + "\t");
+			String rowName = "\n" + (String)data.rows.get(x) + "\t";
+			if(categories != null) {
+				categories.append(rowName);
+			}
+			if(labels != null) {
+				labels.append(rowName);
+			}
 			int y = 0;
 			for (int l = matrix[k].length; y < l; y++) {				
-				//get translated value
-				String columnName = columns.get(y);
-				if(mode == TranslationMode.ToCategories) {
-					res.append(getTranslatedValue(indexToCategoriesMap, columnName, String.valueOf(matrix[k][y])) + "\t"); 
-				} 
-				else if(mode == TranslationMode.ToLabels) {
-					String tempCategory = getTranslatedValue(indexToCategoriesMap, columnName, String.valueOf(matrix[k][y]));
-					res.append(getTranslatedValue(categoriesToLabelsMap, columnName, tempCategory) + "\t"); 
+				//get translated values (the category is also needed to get the label)
+				String category = translations[y].getCategory(matrix[k][y]);
+				if(categories != null) {
+					categories.append(category).append("\t"); 
+				}
+				if(labels != null) {
+					labels.append(translations[y].getLabel(category)).append("\t"); 
 				}
 			}
 			k++;
 		}
-		return res.toString().replace(",]", "]");
 	}
 	
 	//method to print translated bicluster with class (PROBABLY DOES NOT WORK WITH SCABILITY)
@@ -349,6 +543,9 @@ public class BiclustersTranslator {
 		
 		//get target class values for each Bicluster row
 		List<String> targetClassValues = evaluator.getTargetClassValues(bic, targetClassName);
+		
+		//translation tables of each column (resolved once per column)
+		ColumnTranslation[] translations = getColumnTranslations(columns);
 
 		//translate the indexes that compose the bicluster
 		int[][] matrix = data.getBicluster(bic.columns, bic.rows);
@@ -361,13 +558,8 @@ public class BiclustersTranslator {
 			int y = 0;
 			for (int l = matrix[k].length; y < l; y++) {				
 				//get translated value
-				String columnName = columns.get(y);
-				if(mode == TranslationMode.ToCategories) {
-					res.append(getTranslatedValue(indexToCategoriesMap, columnName, String.valueOf(matrix[k][y])) + "\t"); 
-				} 
-				else if(mode == TranslationMode.ToLabels) {
-					String tempCategory = getTranslatedValue(indexToCategoriesMap, columnName, String.valueOf(matrix[k][y]));
-					res.append(getTranslatedValue(categoriesToLabelsMap, columnName, tempCategory) + "\t"); 
+				if(mode == TranslationMode.ToCategories || mode == TranslationMode.ToLabels) {
+					res.append(getTranslatedValue(mode, translations[y], matrix[k][y]) + "\t"); 
 				}
 			}
 			//append class value for the respective row
@@ -377,28 +569,44 @@ public class BiclustersTranslator {
 		return res.toString().replace(",]", "]");
 	}
 	
-	//auxiliary function to get the correct translation
-	private String getTranslatedValue(Map<String, List<Pair<String, String>>> translationMap, String columnName, String key) {
+	//auxiliary function to get the translation tables of a list of columns
+	private ColumnTranslation[] getColumnTranslations(List<String> columnNames) {
 		
-		List<Pair<String, String>> values = translationMap.get(columnName);
+		ColumnTranslation[] translations = new ColumnTranslation[columnNames.size()];
 		
-		for(Pair<String, String> pair : values) {
-			if(pair.getKey().equals(key)) {
-				return pair.getValue();
-			}
+		int y = 0;
+		for(String columnName : columnNames) {
+			translations[y++] = getColumnTranslation(columnName);
+		}
+		return translations;
+	}
+	
+	//auxiliary function to get the correct translation (TranslationMode.Both behaves as TranslationMode.ToLabels)
+	private static String getTranslatedValue(TranslationMode mode, ColumnTranslation translation, int index) {
+		
+		String category = translation.getCategory(index);
+		
+		if(mode == TranslationMode.ToCategories) {
+			return category;
 		}
+		return translation.getLabel(category);
+	}
+	
+	private static String notFound(String key, String columnName) {
 		return "Not found (key: " + key + " for category " + columnName +" )";
 	}
 	
 	/** TranslationMode.Both for this method behaves as TranslationMode.ToLabels */
 	public String getTranslatedValue(TranslationMode mode, String columnName, String key) {
 		
+		ColumnTranslation translation = getColumnTranslation(columnName);
+		String category = translation.getCategory(key);
+		
 		if(mode == TranslationMode.ToCategories) {
-			return getTranslatedValue(indexToCategoriesMap, columnName, key); 
+			return category; 
 		} 
 		else { // if(mode == TranslationMode.ToLabels) {
-			String tempCategory = getTranslatedValue(indexToCategoriesMap, columnName, key);
-			return getTranslatedValue(categoriesToLabelsMap, columnName, tempCategory); 
+			return translation.getLabel(category); 
 		}
 	}
 }
@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 
+import bic_experiment.BicPamsExperimentSet;
 import bic_translator.BiclustersTranslator.TranslationMode;
 import bicpam.bicminer.BiclusterMiner.Orientation;
 import bicpam.closing.BiclusterFilter.FilteringCriteria;
@@ -41,6 +42,7 @@ public class Task2 {
 		
 	public static void runQuestion2() throws IOException {
 		
+		//to resume an interrupted experiment set, use the date of its results folder instead (e.g. "2019-7-9_10-1-05")
 		String currentDate = Utils.getCurrentDate();
 		TranslationMode translationMode = TranslationMode.Both;
 		 
@@ -78,13 +80,21 @@ public class Task2 {
 		String[] targetClassName = {"group"};
 		Boolean[] printPatternsOnly = {false};
 		
-		Utils.createAndRunExperimentSet(currentDate, dataset, csvDataset, stoppingCriteria, stoppingCriteriaValue,
+		BicPamsExperimentSet expSet = Utils.createExperimentSet(currentDate, dataset, csvDataset, stoppingCriteria, stoppingCriteriaValue,
 								  minNrColumns, nrIterations, nrItems, symmetric, minOverlapMerging,
 								  filter, missingsHandler, removeElements, minFilteringValue, patternType,
 								  closedImplementation, orientation, significanceLevel, scalability,
 								  columnFilteringPerc, discriminative, targetClassName,
 								  printPatternsOnly, experimentSetFileFolder, translationIndexesToCategoryValues,
 								  translationCategoryValuesToLabels, translationMode);
+		
+		//run several experiments at the same time (one per available core)
+		expSet.setNumberWorkers(Runtime.getRuntime().availableProcessors());
+		//reuse the Biclusters of experiments already run with the same dataset and parameters
+		expSet.setResultsCacheFolder("/Users/joana/Desktop/MCD/Thesis/Data/results/Task_2/Task_2_cache");
+		//mine only once, at the lowest support of the stoppingCriteriaValue sweep
+		expSet.setSupportSweep(true);
+		expSet.runExperimentSet();
     
 	}
 }
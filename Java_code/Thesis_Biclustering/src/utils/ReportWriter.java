@@ -0,0 +1,167 @@
+package utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Streaming writer for the text reports of an experiment (output, translated Biclusters and classifier files),
+ *  so that the reports are written bicluster by bicluster instead of being built as a whole in memory first.
+ *  Text is encoded (UTF-8) in fixed size buffers and written to a FileChannel; files whose path ends with ".gz"
+ *  are gzip-compressed. Unlike StringBuffer and BufferedWriter, appends are not synchronized
+ *  (each report is written by a single thread).
+ */
+
+public class ReportWriter extends Writer {
+
+	//extension of the gzip-compressed reports
+	public static final String GZIP_EXTENSION = ".gz";
+	//size of the char and byte buffers
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private WritableByteChannel channel;
+	private CharsetEncoder encoder;
+	private CharBuffer chars;
+	private ByteBuffer bytes;
+
+	/**CONSTRUCTOR*/
+	public ReportWriter(String filePath) throws IOException {
+
+		FileChannel fileChannel = FileChannel.open(Paths.get(filePath), StandardOpenOption.CREATE,
+												   StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		if(isCompressed(filePath)) {
+			this.channel = Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(fileChannel), BUFFER_SIZE));
+		}
+		else {
+			this.channel = fileChannel;
+		}
+
+		//same handling of unmappable characters as FileWriter
+		this.encoder = StandardCharsets.UTF_8.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+															.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.chars = CharBuffer.allocate(BUFFER_SIZE);
+		this.bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	}
+
+	//true if a report is written gzip-compressed
+	public static boolean isCompressed(String filePath) {
+		return filePath.endsWith(GZIP_EXTENSION);
+	}
+
+	/**WRITER*/
+	@Override
+	public void write(int c) throws IOException {
+
+		if(!this.chars.hasRemaining()) {
+			encode(false);
+		}
+		this.chars.put((char) c);
+	}
+
+	@Override
+	public void write(char[] cbuf, int off, int len) throws IOException {
+
+		while(len > 0) {
+			if(!this.chars.hasRemaining()) {
+				encode(false);
+			}
+			int n = Math.min(len, this.chars.remaining());
+			this.chars.put(cbuf, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void write(String str, int off, int len) throws IOException {
+
+		while(len > 0) {
+			if(!this.chars.hasRemaining()) {
+				encode(false);
+			}
+			int n = Math.min(len, this.chars.remaining());
+			this.chars.put(str, off, off + n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public ReportWriter append(CharSequence csq) throws IOException {
+
+		String str = String.valueOf(csq);
+		write(str, 0, str.length());
+		return this;
+	}
+
+	//write the buffered text to the file (the compressed data of gzip reports is only complete after close)
+	@Override
+	public void flush() throws IOException {
+		encode(false);
+	}
+
+	@Override
+	public void close() throws IOException {
+
+		if(this.channel == null) {
+			return;
+		}
+		try {
+			encode(true);
+		}
+		finally {
+			this.channel.close();
+			this.channel = null;
+		}
+	}
+
+	/**UTILITY METHODS*/
+	//encode the buffered chars and write the encoded bytes to the channel
+	//(an incomplete surrogate pair is kept in the char buffer until the next chars are written)
+	private void encode(boolean endOfInput) throws IOException {
+
+		if(this.channel == null) {
+			throw new IOException("ReportWriter: the report is closed");
+		}
+
+		this.chars.flip();
+		while(this.encoder.encode(this.chars, this.bytes, endOfInput).isOverflow()) {
+			writeBytes();
+		}
+		this.chars.compact();
+
+		if(endOfInput) {
+			CoderResult result;
+			while((result = this.encoder.flush(this.bytes)).isOverflow()) {
+				writeBytes();
+			}
+			if(result.isError()) {
+				result.throwException();
+			}
+		}
+		writeBytes();
+	}
+
+	private void writeBytes() throws IOException {
+
+		this.bytes.flip();
+		while(this.bytes.hasRemaining()) {
+			this.channel.write(this.bytes);
+		}
+		this.bytes.clear();
+	}
+}
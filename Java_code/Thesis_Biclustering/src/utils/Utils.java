@@ -5,6 +5,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
@@ -15,6 +17,8 @@ import bicpam.bicminer.BiclusterMiner.Orientation;
 import bicpam.closing.BiclusterFilter.FilteringCriteria;
 import bicpam.mapping.Itemizer.FillingCriteria;
 import bicpam.pminer.fim.ClosedFIM.ClosedImplementation;
+import domain.Bicluster;
+import domain.Dataset;
 import generator.BicMatrixGenerator.PatternType;
 
 /** @author Joana Matos
@@ -59,13 +63,14 @@ public class Utils {
 		}
 	}
 	
-	public static void printProbabilityMatrix(String categories, Double[][] matrix) {
+	//matrix -> probability matrix stored row by row, with numberColumns values per row
+	public static void printProbabilityMatrix(String categories, double[] matrix, int numberColumns) {
 		
 		System.out.println(categories);
-		for (int i = 0; i < matrix.length; i++) {
+		for (int i = 0; numberColumns > 0 && i < matrix.length / numberColumns; i++) {
 			System.out.print("Bicluster #" + i + ":\t");
-		    for (int j = 0; j < matrix[i].length; j++) {
-		        System.out.print(matrix[i][j] + "\t");
+		    for (int j = 0; j < numberColumns; j++) {
+		        System.out.print(matrix[i * numberColumns + j] + "\t");
 		    }
 		    System.out.println();
 		}
@@ -93,6 +98,19 @@ public class Utils {
 		return Math.log10(value) / Math.log10(2);
 	}
 	
+	//values of one row of a Bicluster (in the order of its columns), without building the whole Bicluster matrix
+	public static int[] getBiclusterRow(Dataset data, Bicluster bic, int row) {
+		
+		SortedSet<Integer> rows = new TreeSet<Integer>();
+		rows.add(row);
+		return data.getBicluster(bic.columns, rows)[0];
+	}
+	
+	//pattern of a Bicluster with a constant pattern (all its rows have the same values, so the first row is read)
+	public static int[] getConstantPattern(Dataset data, Bicluster bic) {
+		return getBiclusterRow(data, bic, bic.rows.first());
+	}
+	
 	//this returns the number of the column (not the index)
 	public static int getMaximumNumberOfColumns(XSSFSheet sheet) {
 		
@@ -120,7 +138,7 @@ public class Utils {
 			String translationIndexToCategoryFilePath, String translationCategoryToLabelFilePath, 
 			TranslationMode translationMode) throws IOException {
 
-		BicPamsExperimentSet expSet = new BicPamsExperimentSet(currentDate, dataset, csvDataset, stoppingCriteria, stoppingCriteriaValue,
+		BicPamsExperimentSet expSet = createExperimentSet(currentDate, dataset, csvDataset, stoppingCriteria, stoppingCriteriaValue,
 								   minNrColumns, nrIterations, nrItems, symmetric, minOverlapMerging,
 								   filter, missingsHandler, removeMissings, minFilteringValue, patternType,
 								   closedImplementation, orientation, significanceLevel, scalability,
@@ -130,4 +148,24 @@ public class Utils {
 		
 		expSet.runExperimentSet();
 	}
+	
+	//wrapper function that only creates the experiment set (so that its options can be changed before running it)
+	public static BicPamsExperimentSet createExperimentSet(String currentDate, String dataset, String csvDataset, StoppingCriteria[] stoppingCriteria, 
+			Double[] stoppingCriteriaValue, Integer[] minNrColumns, Integer[] nrIterations, Integer[] nrItems, 
+			Boolean[] symmetric, Double[] minOverlapMerging, FilteringCriteria[] filter, 
+			FillingCriteria[] missingsHandler, RemoveCriteria[] removeMissings, Double[] minFilteringValue, 
+			PatternType[] patternType, ClosedImplementation[] closedImplementation, Orientation[] orientation, 
+			Double[] significanceLevel, Boolean[] scalability, Double[] columnFilteringPerc, Boolean[] discriminative,
+			String[] targetClassName, Boolean[] printPatternsOnly, String experimentSetFileFolder, 
+			String translationIndexToCategoryFilePath, String translationCategoryToLabelFilePath, 
+			TranslationMode translationMode) {
+
+		return new BicPamsExperimentSet(currentDate, dataset, csvDataset, stoppingCriteria, stoppingCriteriaValue,
+								   minNrColumns, nrIterations, nrItems, symmetric, minOverlapMerging,
+								   filter, missingsHandler, removeMissings, minFilteringValue, patternType,
+								   closedImplementation, orientation, significanceLevel, scalability,
+								   columnFilteringPerc, discriminative, targetClassName,
+								   printPatternsOnly, experimentSetFileFolder, translationIndexToCategoryFilePath,
+								   translationCategoryToLabelFilePath, translationMode);
+	}
 }
@@ -0,0 +1,278 @@
+package bic_benchmark;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.math3.util.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import bic_experiment.BicPamsExperiment;
+import bic_experiment.DatasetLoader;
+import bic_metrics.BiclustersEvaluator;
+import bic_metrics.CsvColumnStore;
+import bic_metrics.MetricsExperiment;
+import bic_translator.BiclustersTranslator;
+import bic_translator.BiclustersTranslator.TranslationMode;
+import bicpam.bicminer.BiclusterMiner.Orientation;
+import bicpam.closing.BiclusterFilter.FilteringCriteria;
+import bicpam.mapping.Itemizer.FillingCriteria;
+import bicpam.pminer.fim.ClosedFIM.ClosedImplementation;
+import domain.Biclusters;
+import domain.Dataset;
+import generator.BicMatrixGenerator.PatternType;
+import utils.Utils.RemoveCriteria;
+import utils.Utils.StoppingCriteria;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  JMH benchmarks of the experiment pipeline on synthetic datasets with planted biclusters (see PlantedDatasetGenerator):
+ *  preprocessing, mining, closing, significance and full run of a BicPamsExperiment, BiclustersEvaluator (construction,
+ *  metrics and classifier CSV) and BiclustersTranslator. The inputs of each stage benchmark (preprocessed Dataset, mined and
+ *  closed Biclusters) and the Biclusters used by the evaluator and translator benchmarks are built once per trial.
+ *  The time of each stage of the setup run (see StageProfiler) is printed when the trial starts.
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+public class PipelineBenchmark {
+
+	//dataset size
+	@Param({"500", "5000", "50000"})
+	public int numberRows;
+
+	@Param({"50"})
+	public int numberColumns;
+
+	@Param({"5"})
+	public int numberItems;
+
+	//planted biclusters
+	@Param({"20"})
+	public int numberBiclusters;
+
+	//support of the mined biclusters (planted biclusters have 10% of the rows)
+	@Param({"0.05"})
+	public double support;
+
+	//files of the generated dataset
+	private File folder;
+	private String arffFilePath;
+	private String csvFilePath;
+
+	private DatasetLoader datasetLoader;
+	private BiclustersTranslator translator;
+	//experiment run once per trial, and its results
+	private BicPamsExperiment experiment;
+	private Biclusters bics;
+	private Dataset data;
+	private BiclustersEvaluator evaluator;
+	//inputs of the stage benchmarks
+	private Pair<Dataset, String> preprocessedData;
+	private Biclusters minedBics;
+	private Biclusters closedBics;
+	//CSV dataset loaded once (as done for an experiment set)
+	private CsvColumnStore csvStore;
+
+	/**SETUP*/
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+
+		this.folder = Files.createTempDirectory("bic_benchmark_" + this.numberRows + "_").toFile();
+		this.arffFilePath = this.folder.getPath() + "/planted.arff";
+		this.csvFilePath = this.folder.getPath() + "/planted.csv";
+		String indexToCategoriesFilePath = this.folder.getPath() + "/indexes_to_categories.tsv";
+		String categoriesToLabelsFilePath = this.folder.getPath() + "/categories_labels.xlsx";
+
+		PlantedDatasetGenerator generator = new PlantedDatasetGenerator(this.numberRows, this.numberColumns, this.numberItems, 2,
+																		this.numberBiclusters, 0.1, 5, 0.9, 1L);
+		generator.generate();
+		generator.writeArff(this.arffFilePath);
+		generator.writeIndexToCategories(indexToCategoriesFilePath);
+		generator.writeCategoriesToLabels(categoriesToLabelsFilePath);
+
+		//the subject ids of the CSV file are the row names of the Dataset, so that the evaluator matches rows and lines
+		this.datasetLoader = new DatasetLoader(this.arffFilePath);
+		generator.writeCsv(this.csvFilePath, this.datasetLoader.getDataset(true, PlantedDatasetGenerator.TARGET_CLASS_NAME).rows);
+
+		this.translator = new BiclustersTranslator(indexToCategoriesFilePath, categoriesToLabelsFilePath);
+
+		this.experiment = createExperiment("Exp_Setup");
+		this.experiment.setData(this.datasetLoader.getDataset(true, PlantedDatasetGenerator.TARGET_CLASS_NAME));
+		this.bics = this.experiment.run();
+		this.data = this.experiment.getData();
+		this.evaluator = new BiclustersEvaluator(this.csvFilePath, this.bics, PlantedDatasetGenerator.TARGET_CLASS_NAME);
+		this.csvStore = new CsvColumnStore(this.csvFilePath, BiclustersEvaluator.SUBJECT_ID_COLUMN_NAME, PlantedDatasetGenerator.TARGET_CLASS_NAME);
+
+		//each stage is run once, so that the next stage can be benchmarked on its result
+		BicPamsExperiment stageExperiment = createExperiment("Exp_Stages");
+		this.preprocessedData = stageExperiment.preprocess(this.datasetLoader.getDataset(true, PlantedDatasetGenerator.TARGET_CLASS_NAME));
+		stageExperiment.setData(this.preprocessedData.getFirst());
+		this.minedBics = stageExperiment.mineRawBiclusters();
+		this.closedBics = stageExperiment.closeBiclusters(this.minedBics);
+
+		System.out.println("\nStages of the setup run (" + this.numberRows + " rows, " + this.bics.size() + " Biclusters):\n"
+						   + this.experiment.getProfiler().toCSV());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+
+		File[] files = this.folder.listFiles();
+		if(files != null) {
+			for(File file : files) {
+				file.delete();
+			}
+		}
+		this.folder.delete();
+	}
+
+	private BicPamsExperiment createExperiment(String experimentId) {
+
+		return new BicPamsExperiment(experimentId,
+									 null,												//data (set by each benchmark)
+									 this.arffFilePath,
+									 StoppingCriteria.MinSupportPercentageRowsPerBic,
+									 this.support,										//stoppingCriteriaValue
+									 3,													//minNrColumns
+									 1,													//nrIterations
+									 this.numberItems,									//nrItems
+									 false,												//symmetric
+									 0.8,												//minOverlapMerging
+									 FilteringCriteria.Overall,							//filter
+									 FillingCriteria.RemoveValue,						//missingsHandler
+									 RemoveCriteria.RemoveNone,							//removeElements
+									 25,												//minFilteringValue
+									 PatternType.Constant,								//patternType
+									 ClosedImplementation.DCharm,						//closedImplementation
+									 Orientation.PatternOnRows,							//orientation
+									 0.05,												//significanceLevel
+									 false,												//scalability
+									 -1,												//columnFilteringPerc
+									 true,												//discriminative
+									 PlantedDatasetGenerator.TARGET_CLASS_NAME,			//targetClassName
+									 false,												//printPatternsOnly
+									 this.folder.getPath(),								//experimentSetFileFolder
+									 experimentId + "_output.txt");						//outputFilename
+	}
+
+	//experiment on the preprocessed Dataset of the trial (new experiment for each call, so that its profiler does not grow)
+	private BicPamsExperiment createStageExperiment(String experimentId) {
+
+		BicPamsExperiment stageExperiment = createExperiment(experimentId);
+		stageExperiment.setData(this.preprocessedData.getFirst());
+		return stageExperiment;
+	}
+
+	/**BENCHMARKS*/
+	//Itemizer and ItemMapper (stage 1 of BicPamsExperiment.run)
+	@Benchmark
+	public Pair<Dataset, String> preprocess() throws Exception {
+
+		BicPamsExperiment benchmarkExperiment = createExperiment("Exp_Preprocess");
+		return benchmarkExperiment.preprocess(this.datasetLoader.getDataset(true, PlantedDatasetGenerator.TARGET_CLASS_NAME));
+	}
+
+	//pattern miner on the preprocessed Dataset (stage 3 of BicPamsExperiment.run)
+	@Benchmark
+	public Biclusters mining() throws Exception {
+		return createStageExperiment("Exp_Mining").mineRawBiclusters();
+	}
+
+	//merging, filtering and patterns of the mined Biclusters (stage 2, the mined Biclusters are not changed)
+	@Benchmark
+	public Biclusters closing() throws Exception {
+		return createStageExperiment("Exp_Closing").closeBiclusters(this.minedBics);
+	}
+
+	//p-values of the closed Biclusters, removal of the non significant ones and ordering by p-value
+	//(the p-values of the closed Biclusters are calculated again on each call)
+	@Benchmark
+	public Biclusters significance() {
+		return createStageExperiment("Exp_Significance").calculateSignificance(this.closedBics);
+	}
+
+	//all stages of BicPamsExperiment.run (preprocessing, mining, closing, significance and output file)
+	@Benchmark
+	public Biclusters experimentRun() throws Exception {
+
+		BicPamsExperiment benchmarkExperiment = createExperiment("Exp_Run");
+		benchmarkExperiment.setData(this.datasetLoader.getDataset(true, PlantedDatasetGenerator.TARGET_CLASS_NAME));
+		return benchmarkExperiment.run();
+	}
+
+	//CSV reading and class probabilities
+	@Benchmark
+	public BiclustersEvaluator evaluatorConstruction() throws Exception {
+		return new BiclustersEvaluator(this.csvFilePath, this.bics, PlantedDatasetGenerator.TARGET_CLASS_NAME);
+	}
+
+	//class probabilities only (CSV dataset shared by all evaluators of an experiment set)
+	@Benchmark
+	public BiclustersEvaluator evaluatorConstructionSharedStore() throws Exception {
+		return new BiclustersEvaluator(this.csvStore, this.bics, PlantedDatasetGenerator.TARGET_CLASS_NAME);
+	}
+
+	@Benchmark
+	public MetricsExperiment allClassMetricCalculations() {
+		return this.evaluator.getAllClassMetricCalculations(this.data);
+	}
+
+	@Benchmark
+	public String classifierMatrixForCSVFile() throws Exception {
+		return this.evaluator.buildClassifierMatrixForCSVFile(this.data);
+	}
+
+	//same classifier matrix, streamed to a file (as done by the experiment set)
+	@Benchmark
+	public void classifierMatrixToCSVFile() throws Exception {
+		this.evaluator.writeClassifierMatrixToCSVFile(this.data, this.folder.getPath() + "/classifier.csv");
+	}
+
+	@Benchmark
+	public void translate() throws Exception {
+		this.translator.translate(TranslationMode.ToCategories, this.bics, this.experiment, this.folder.getPath());
+	}
+
+	//category values and labels (default translation mode of the tasks)
+	@Benchmark
+	public void translateBoth() throws Exception {
+		this.translator.translate(TranslationMode.Both, this.bics, this.experiment, this.folder.getPath());
+	}
+
+	/**MAIN*/
+	//runs all benchmarks (for 500, 5000 and 50000 rows) and saves the results on a CSV file
+	public static void main(String[] args) throws RunnerException {
+
+		Options options = new OptionsBuilder()
+				.include(PipelineBenchmark.class.getSimpleName())
+				.resultFormat(ResultFormatType.CSV)
+				.result("PipelineBenchmark_results.csv")
+				.build();
+
+		new Runner(options).run();
+	}
+}
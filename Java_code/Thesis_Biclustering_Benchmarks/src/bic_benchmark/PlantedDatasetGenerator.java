@@ -0,0 +1,224 @@
+package bic_benchmark;
+
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import utils.Utils;
+
+/** @author Joana Matos
+ *  @contact jmatos@lasige.di.fc.ul.pt
+ *  @version 1.0
+ *
+ *  Generator of synthetic datasets with planted constant biclusters, in the same formats used by the experiments:
+ *  ARFF dataset (item indexes plus the target class), CSV dataset (category values, subject ids and target class),
+ *  indexes to categories translation file (TSV) and categories to labels translation file (XLSX).
+ *  The rows of each planted bicluster mostly belong to the same target class, so that the biclusters are discriminative.
+ *  The same seed always generates the same dataset.
+ */
+
+public class PlantedDatasetGenerator {
+
+	public static final String TARGET_CLASS_NAME = "group";
+	public static final String SUBJECT_ID_NAME = "Subject ID";
+
+	//dataset size
+	private int numberRows;
+	private int numberColumns;
+	private int numberItems;
+	private int numberClasses;
+	//planted biclusters
+	private int numberBiclusters;
+	private double biclusterRowsPerc;			//percentage of the dataset rows in each planted bicluster
+	private int biclusterColumns;				//number of columns of each planted bicluster
+	private double biclusterClassPurity;		//probability of a planted bicluster row belonging to the class of the bicluster
+
+	//generated data
+	private int[][] matrix;
+	private String[] classes;
+	private Random random;
+
+	/**CONSTRUCTOR*/
+	public PlantedDatasetGenerator(int numberRows, int numberColumns, int numberItems, int numberClasses, int numberBiclusters,
+								   double biclusterRowsPerc, int biclusterColumns, double biclusterClassPurity, long seed) {
+
+		this.numberRows = numberRows;
+		this.numberColumns = numberColumns;
+		this.numberItems = numberItems;
+		this.numberClasses = numberClasses;
+		this.numberBiclusters = numberBiclusters;
+		this.biclusterRowsPerc = biclusterRowsPerc;
+		this.biclusterColumns = biclusterColumns;
+		this.biclusterClassPurity = biclusterClassPurity;
+		this.random = new Random(seed);
+	}
+
+	/**GETTERS*/
+	public int[][] getMatrix() {
+		return matrix;
+	}
+
+	public String[] getClasses() {
+		return classes;
+	}
+
+	/**GENERATION*/
+	public void generate() {
+
+		this.matrix = new int[this.numberRows][this.numberColumns];
+		this.classes = new String[this.numberRows];
+
+		//uniform background
+		for(int i = 0; i < this.numberRows; i++) {
+			for(int j = 0; j < this.numberColumns; j++) {
+				this.matrix[i][j] = this.random.nextInt(this.numberItems);
+			}
+			this.classes[i] = getClassName(this.random.nextInt(this.numberClasses));
+		}
+
+		List<Integer> rowIndexes = getIndexes(this.numberRows);
+		List<Integer> columnIndexes = getIndexes(this.numberColumns);
+		int bicRows = Math.max(1, (int) (this.numberRows * this.biclusterRowsPerc));
+
+		//planted biclusters (constant value per column, class of the bicluster for most of its rows)
+		for(int b = 0; b < this.numberBiclusters; b++) {
+
+			Collections.shuffle(rowIndexes, this.random);
+			Collections.shuffle(columnIndexes, this.random);
+			String bicClass = getClassName(b % this.numberClasses);
+
+			for(int j = 0; j < this.biclusterColumns && j < this.numberColumns; j++) {
+				int column = columnIndexes.get(j);
+				int value = this.random.nextInt(this.numberItems);
+
+				for(int i = 0; i < bicRows; i++) {
+					this.matrix[rowIndexes.get(i)][column] = value;
+				}
+			}
+
+			for(int i = 0; i < bicRows; i++) {
+				if(this.random.nextDouble() < this.biclusterClassPurity) {
+					this.classes[rowIndexes.get(i)] = bicClass;
+				}
+			}
+		}
+	}
+
+	/**OUTPUT FILES*/
+	public void writeArff(String filePath) throws Exception {
+
+		StringBuilder builder = new StringBuilder();
+		builder.append("@relation planted_biclusters\n\n");
+
+		for(int j = 0; j < this.numberColumns; j++) {
+			builder.append("@attribute " + getColumnName(j) + " numeric\n");
+		}
+
+		builder.append("@attribute " + TARGET_CLASS_NAME + " {");
+		for(int c = 0; c < this.numberClasses; c++) {
+			builder.append((c > 0 ? "," : "") + getClassName(c));
+		}
+		builder.append("}\n\n@data\n");
+
+		for(int i = 0; i < this.numberRows; i++) {
+			for(int j = 0; j < this.numberColumns; j++) {
+				builder.append(this.matrix[i][j] + ",");
+			}
+			builder.append(this.classes[i] + "\n");
+		}
+
+		Utils.writeFile(filePath, builder.toString());
+	}
+
+	//rowNames -> names of the rows of the Dataset read from the ARFF file (used as subject ids, to match Dataset rows and CSV lines)
+	public void writeCsv(String filePath, List<String> rowNames) throws Exception {
+
+		StringBuilder builder = new StringBuilder();
+
+		builder.append(SUBJECT_ID_NAME + ",");
+		for(int j = 0; j < this.numberColumns; j++) {
+			builder.append(getColumnName(j) + ",");
+		}
+		builder.append(TARGET_CLASS_NAME + "\n");
+
+		for(int i = 0; i < this.numberRows; i++) {
+			builder.append(rowNames.get(i) + ",");
+			for(int j = 0; j < this.numberColumns; j++) {
+				builder.append(getCategoryName(this.matrix[i][j]) + ",");
+			}
+			builder.append(this.classes[i] + "\n");
+		}
+
+		Utils.writeFile(filePath, builder.toString());
+	}
+
+	//same format as the indexes to categories files of the tasks ("column	index -> category	...")
+	public void writeIndexToCategories(String filePath) throws Exception {
+
+		StringBuilder builder = new StringBuilder();
+
+		for(int j = 0; j < this.numberColumns; j++) {
+			builder.append(getColumnName(j));
+			for(int k = 0; k < this.numberItems; k++) {
+				builder.append("\t" + k + " -> " + getCategoryName(k));
+			}
+			builder.append("\n");
+		}
+
+		Utils.writeFile(filePath, builder.toString());
+	}
+
+	//same format as the categories to labels files of the tasks (pairs of columns: label and category value, feature name on the first row)
+	public void writeCategoriesToLabels(String filePath) throws Exception {
+
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		XSSFSheet sheet = workbook.createSheet("Labels");
+
+		XSSFRow header = sheet.createRow(0);
+		for(int j = 0; j < this.numberColumns; j++) {
+			header.createCell(2 * j).setCellValue(getColumnName(j));
+			header.createCell(2 * j + 1).setCellValue(getColumnName(j));
+		}
+
+		for(int k = 0; k < this.numberItems; k++) {
+			XSSFRow row = sheet.createRow(k + 1);
+			for(int j = 0; j < this.numberColumns; j++) {
+				row.createCell(2 * j).setCellValue("Label " + k);
+				row.createCell(2 * j + 1).setCellValue(getCategoryName(k));
+			}
+		}
+
+		FileOutputStream fileOut = new FileOutputStream(filePath);
+		workbook.write(fileOut);
+		fileOut.close();
+		workbook.close();
+	}
+
+	/**UTILITY METHODS*/
+	private static List<Integer> getIndexes(int size) {
+
+		List<Integer> indexes = new ArrayList<Integer>(size);
+		for(int i = 0; i < size; i++) {
+			indexes.add(i);
+		}
+		return indexes;
+	}
+
+	public static String getColumnName(int column) {
+		return "col_" + column;
+	}
+
+	public static String getCategoryName(int item) {
+		return "cat_" + item;
+	}
+
+	public static String getClassName(int classIndex) {
+		return "Class_" + classIndex;
+	}
+}